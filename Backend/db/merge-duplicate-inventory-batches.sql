@@ -0,0 +1,49 @@
+-- One-off migration for databases created before inventory rows were unique per
+-- (pharmacy_id, medication_name, batch_number). The application refuses to start while such duplicates
+-- exist, because it cannot add the uk_inventory_pharmacy_medication_batch constraint.
+--
+-- In each group of duplicates the oldest active row is kept, or the oldest row if none is active.
+-- Quantities of the other active rows are added to it. Soft-deleted rows are not sellable stock, so
+-- their quantities are dropped. Bill items of the removed rows are moved to the kept row.
+--
+-- Check the preview output, then run the file once:
+--   psql -d pharmacare -v ON_ERROR_STOP=1 -f db/merge-duplicate-inventory-batches.sql
+
+BEGIN;
+
+LOCK TABLE inventory IN SHARE ROW EXCLUSIVE MODE;
+
+CREATE TEMPORARY TABLE inventory_duplicates ON COMMIT DROP AS
+SELECT id, active, keep_id
+FROM (SELECT id, active,
+             first_value(id) OVER (PARTITION BY pharmacy_id, medication_name, batch_number
+                                   ORDER BY active DESC, id) AS keep_id
+      FROM inventory) ranked
+WHERE id <> keep_id;
+
+-- Preview: every row that is merged away, next to the row it is merged into
+SELECT d.keep_id, i.id, i.pharmacy_id, i.medication_name, i.batch_number, i.active, i.quantity
+FROM inventory_duplicates d
+JOIN inventory i ON i.id = d.id
+ORDER BY d.keep_id, i.id;
+
+UPDATE inventory i
+SET quantity = i.quantity + d.quantity, updated_at = now()
+FROM (SELECT dup.keep_id, sum(inv.quantity) AS quantity
+      FROM inventory_duplicates dup
+      JOIN inventory inv ON inv.id = dup.id
+      WHERE dup.active
+      GROUP BY dup.keep_id) d
+WHERE i.id = d.keep_id;
+
+UPDATE bill_items b
+SET inventory_id = d.keep_id
+FROM inventory_duplicates d
+WHERE b.inventory_id = d.id;
+
+DELETE FROM inventory WHERE id IN (SELECT id FROM inventory_duplicates);
+
+ALTER TABLE inventory ADD CONSTRAINT uk_inventory_pharmacy_medication_batch
+    UNIQUE (pharmacy_id, medication_name, batch_number);
+
+COMMIT;
@@ -0,0 +1,65 @@
+// k6 scenario comparing platform and virtual thread modes on /api/bills and /api/reminders/pending.
+// Run it once against each mode with the same settings and compare p(99) and http_reqs/s in the summary:
+//
+//   k6 run -e BASE_URL=http://localhost:8080/api -e TOKEN=... -e PHARMACY_ID=1 -e INVENTORY_ID=1 \
+//          -e MODE=platform --summary-export=platform.json loadtest/threads-comparison.js
+//
+// TOKEN must belong to a pharmacy user of PHARMACY_ID. Every bill takes one unit from INVENTORY_ID,
+// so give that item enough stock for the run.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080/api';
+const RATE = Number(__ENV.RATE || 200);
+const DURATION = __ENV.DURATION || '2m';
+
+const headers = {
+  Authorization: `Bearer ${__ENV.TOKEN}`,
+  'Content-Type': 'application/json',
+};
+
+export const options = {
+  tags: { mode: __ENV.MODE || 'unknown' },
+  scenarios: {
+    bills: {
+      executor: 'constant-arrival-rate',
+      exec: 'createBill',
+      rate: Math.ceil(RATE / 4),
+      timeUnit: '1s',
+      duration: DURATION,
+      preAllocatedVUs: 50,
+      maxVUs: 500,
+    },
+    pendingReminders: {
+      executor: 'constant-arrival-rate',
+      exec: 'pendingReminders',
+      rate: RATE,
+      timeUnit: '1s',
+      duration: DURATION,
+      preAllocatedVUs: 100,
+      maxVUs: 2000,
+    },
+  },
+  thresholds: {
+    'http_req_duration{scenario:bills}': ['p(99)<1500'],
+    'http_req_duration{scenario:pendingReminders}': ['p(99)<500'],
+  },
+  summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+export function createBill() {
+  const body = JSON.stringify({
+    pharmacyId: Number(__ENV.PHARMACY_ID),
+    customerName: 'Load test',
+    paymentMethod: 'CASH',
+    paymentStatus: 'PAID',
+    items: [{ inventoryId: Number(__ENV.INVENTORY_ID), quantity: 1 }],
+  });
+  const res = http.post(`${BASE_URL}/bills`, body, { headers });
+  check(res, { 'bill created': (r) => r.status === 201 });
+}
+
+export function pendingReminders() {
+  const res = http.get(`${BASE_URL}/reminders/pending`, { headers });
+  check(res, { 'pending reminders': (r) => r.status === 200 });
+}
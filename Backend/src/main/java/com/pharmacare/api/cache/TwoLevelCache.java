@@ -0,0 +1,134 @@
+package com.pharmacare.api.cache;
+
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.data.redis.cache.RedisCache;
+
+import java.util.concurrent.Callable;
+import java.util.function.BiConsumer;
+
+/**
+ * A cache that serves reads from a bounded in-process Caffeine cache and falls back to a shared
+ * {@link RedisCache}. Writes go to both tiers, and every put, evict and clear is announced to the other
+ * nodes so they drop their now stale local copy.
+ * <p>
+ * Local entries are keyed by the key's string form, which is also what Redis keys are derived from, so an
+ * invalidation received over pub/sub addresses the same entry on every node.
+ */
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<String, Object> localCache;
+    private final RedisCache remoteCache;
+    private final BiConsumer<String, String> invalidationPublisher;
+
+    /**
+     * @param invalidationPublisher called with the cache name and the invalidated key, or {@code null}
+     *                              as the key when the whole cache was cleared
+     */
+    public TwoLevelCache(String name,
+                         com.github.benmanes.caffeine.cache.Cache<String, Object> localCache,
+                         RedisCache remoteCache,
+                         BiConsumer<String, String> invalidationPublisher) {
+        // Redis caches are configured without null values, so this tier cannot hold them either
+        super(false);
+        this.name = name;
+        this.localCache = localCache;
+        this.remoteCache = remoteCache;
+        this.invalidationPublisher = invalidationPublisher;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the local Caffeine cache, which is what the hit and miss metrics describe.
+     */
+    @Override
+    public com.github.benmanes.caffeine.cache.Cache<String, Object> getNativeCache() {
+        return localCache;
+    }
+
+    public RedisCache getRemoteCache() {
+        return remoteCache;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        String localKey = localKey(key);
+        Object value = localCache.getIfPresent(localKey);
+        if (value != null) {
+            return value;
+        }
+        ValueWrapper remote = remoteCache.get(key);
+        if (remote == null || remote.get() == null) {
+            return null;
+        }
+        localCache.put(localKey, remote.get());
+        return remote.get();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return (T) localCache.get(localKey(key), cacheKey -> {
+            ValueWrapper remote = remoteCache.get(key);
+            if (remote != null && remote.get() != null) {
+                return remote.get();
+            }
+            T value;
+            try {
+                value = valueLoader.call();
+            } catch (Exception e) {
+                throw new ValueRetrievalException(key, valueLoader, e);
+            }
+            if (value != null) {
+                remoteCache.put(key, value);
+            }
+            return value;
+        });
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            evict(key);
+            return;
+        }
+        String localKey = localKey(key);
+        remoteCache.put(key, value);
+        localCache.put(localKey, value);
+        invalidationPublisher.accept(name, localKey);
+    }
+
+    @Override
+    public void evict(Object key) {
+        String localKey = localKey(key);
+        remoteCache.evict(key);
+        localCache.invalidate(localKey);
+        invalidationPublisher.accept(name, localKey);
+    }
+
+    @Override
+    public void clear() {
+        remoteCache.clear();
+        localCache.invalidateAll();
+        invalidationPublisher.accept(name, null);
+    }
+
+    /**
+     * Drops a local entry after another node changed it. Redis is not touched.
+     */
+    void evictLocal(String localKey) {
+        localCache.invalidate(localKey);
+    }
+
+    void clearLocal() {
+        localCache.invalidateAll();
+    }
+
+    private static String localKey(Object key) {
+        return String.valueOf(key);
+    }
+}
@@ -0,0 +1,101 @@
+package com.pharmacare.api.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Creates {@link TwoLevelCache}s on top of a {@link RedisCacheManager} and relays invalidations between
+ * nodes over a Redis pub/sub channel. Each message carries the id of the node that sent it so a node
+ * ignores its own invalidations.
+ */
+public class TwoLevelCacheManager implements CacheManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(TwoLevelCacheManager.class);
+
+    private static final String CLEAR_MARKER = "*";
+    private static final String KEY_MARKER = "=";
+
+    private final RedisCacheManager remoteCacheManager;
+    private final StringRedisTemplate redisTemplate;
+    private final TwoLevelCacheProperties properties;
+    private final Duration defaultTtl;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ConcurrentMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+    public TwoLevelCacheManager(RedisCacheManager remoteCacheManager,
+                                StringRedisTemplate redisTemplate,
+                                TwoLevelCacheProperties properties,
+                                Duration defaultTtl) {
+        this.remoteCacheManager = remoteCacheManager;
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+        this.defaultTtl = defaultTtl;
+        properties.getCaches().keySet().forEach(this::getCache);
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    /**
+     * Applies an invalidation message received on the pub/sub channel.
+     */
+    public void onInvalidation(String message) {
+        String[] parts = message.split("\n", 3);
+        if (parts.length != 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        TwoLevelCache cache = caches.get(parts[1]);
+        if (cache == null) {
+            return;
+        }
+        if (parts[2].startsWith(KEY_MARKER)) {
+            cache.evictLocal(parts[2].substring(KEY_MARKER.length()));
+        } else {
+            cache.clearLocal();
+        }
+    }
+
+    private TwoLevelCache createCache(String name) {
+        TwoLevelCacheProperties.CacheSpec spec = properties.getCaches().get(name);
+        Duration ttl = spec != null && spec.getTtl() != null ? spec.getTtl() : defaultTtl;
+        long maxSize = spec != null && spec.getMaxSize() != null ? spec.getMaxSize() : properties.getDefaultMaxSize();
+
+        com.github.benmanes.caffeine.cache.Cache<String, Object> localCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        RedisCache remoteCache = (RedisCache) remoteCacheManager.getCache(name);
+        return new TwoLevelCache(name, localCache, remoteCache, this::publishInvalidation);
+    }
+
+    private void publishInvalidation(String cacheName, String localKey) {
+        String target = localKey == null ? CLEAR_MARKER : KEY_MARKER + localKey;
+        try {
+            redisTemplate.convertAndSend(properties.getInvalidationChannel(), nodeId + "\n" + cacheName + "\n" + target);
+        } catch (RuntimeException e) {
+            // Other nodes fall back to their local TTL
+            logger.warn("Could not publish invalidation for cache {}: {}", cacheName, e.getMessage());
+        }
+    }
+}
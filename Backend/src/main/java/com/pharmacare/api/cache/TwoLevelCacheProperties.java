@@ -0,0 +1,44 @@
+package com.pharmacare.api.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings for the two-level cache. Caches listed under {@code pharmacare.cache.caches} are created at
+ * startup so their metrics are registered; any other cache name is created on first use with the
+ * defaults.
+ */
+@Data
+@ConfigurationProperties(prefix = "pharmacare.cache")
+public class TwoLevelCacheProperties {
+
+    /**
+     * Maximum number of entries held in each node's local cache unless overridden per cache.
+     */
+    private long defaultMaxSize = 1000;
+
+    /**
+     * Redis channel used to tell other nodes to drop local entries.
+     */
+    private String invalidationChannel = "pharmacare:cache:invalidations";
+
+    private Map<String, CacheSpec> caches = new LinkedHashMap<>();
+
+    @Data
+    public static class CacheSpec {
+
+        /**
+         * Time to live in both tiers. Falls back to {@code spring.cache.redis.time-to-live}.
+         */
+        private Duration ttl;
+
+        /**
+         * Maximum number of entries in the local tier. Falls back to {@code defaultMaxSize}.
+         */
+        private Long maxSize;
+    }
+}
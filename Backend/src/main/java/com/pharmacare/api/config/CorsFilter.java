@@ -3,53 +3,141 @@ package com.pharmacare.api.config;
 import jakarta.servlet.*;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
+/**
+ * Answers CORS for origins listed in {@code cors.allowed-origins}. Entries may contain {@code *} as a
+ * wildcard, for example {@code https://*.pharmacare.app}. Exact origins are matched with a set lookup,
+ * wildcard entries with patterns compiled at startup, and every header value is built once.
+ * <p>
+ * Preflight requests are answered here without entering the rest of the filter chain. A preflight from an
+ * origin that is not allowed gets 403.
+ */
 @Component
 @Order(Ordered.HIGHEST_PRECEDENCE)
 public class CorsFilter implements Filter {
 
-    @Value("${cors.allowed-origins}")
-    private String allowedOrigins;
+    private static final Logger logger = LoggerFactory.getLogger(CorsFilter.class);
+
+    // Upper bound on remembered wildcard match results, so arbitrary Origin headers cannot grow the map
+    private static final int MAX_CACHED_ORIGIN_DECISIONS = 1024;
+
+    private final Set<String> exactOrigins = new HashSet<>();
+    private final List<Pattern> originPatterns = new ArrayList<>();
+    private final Map<String, Boolean> patternDecisions = new ConcurrentHashMap<>();
+    private final String allowedMethods;
+    private final String allowedHeaders;
+    private final String exposedHeaders;
+    private final boolean allowCredentials;
+    private final String maxAge;
+
+    public CorsFilter(@Value("${cors.allowed-origins}") String allowedOrigins,
+                      @Value("${cors.allowed-methods:GET,POST,PUT,DELETE,OPTIONS}") String allowedMethods,
+                      @Value("${cors.allowed-headers:Authorization,Content-Type,X-Requested-With,Accept,Origin}") String allowedHeaders,
+                      @Value("${cors.exposed-headers:Authorization}") String exposedHeaders,
+                      @Value("${cors.allow-credentials:true}") boolean allowCredentials,
+                      @Value("${cors.max-age:3600}") long maxAge) {
+        for (String origin : allowedOrigins.split(",")) {
+            String normalized = origin.trim().toLowerCase(Locale.ROOT);
+            if (normalized.isEmpty()) {
+                continue;
+            }
+            if (normalized.contains("*")) {
+                originPatterns.add(Pattern.compile(
+                        Pattern.quote(normalized).replace("*", "\\E[^/]*\\Q")));
+            } else {
+                exactOrigins.add(normalized);
+            }
+        }
+        this.allowedMethods = joinList(allowedMethods);
+        this.allowedHeaders = joinList(allowedHeaders);
+        this.exposedHeaders = joinList(exposedHeaders);
+        this.allowCredentials = allowCredentials;
+        this.maxAge = String.valueOf(maxAge);
+    }
 
     @Override
     public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain)
             throws IOException, ServletException {
         HttpServletResponse response = (HttpServletResponse) res;
         HttpServletRequest request = (HttpServletRequest) req;
-        
-        String origin = request.getHeader("Origin");
-        
-        // Debug logging
-        System.out.println("CORS Filter: Processing request to " + request.getRequestURI() + " from origin " + origin);
-        
-        // Allow all origins that are configured - don't check if allowed, just set it if present
+
+        String origin = request.getHeader(HttpHeaders.ORIGIN);
+        boolean isOptions = "OPTIONS".equalsIgnoreCase(request.getMethod());
+
         if (origin != null) {
-            response.setHeader("Access-Control-Allow-Origin", origin);
-            response.setHeader("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS");
-            response.setHeader("Access-Control-Allow-Headers", "Authorization, Content-Type, X-Requested-With, Accept, Origin, Access-Control-Request-Method, Access-Control-Request-Headers");
-            response.setHeader("Access-Control-Expose-Headers", "Authorization");
-            response.setHeader("Access-Control-Allow-Credentials", "true");
-            response.setHeader("Access-Control-Max-Age", "3600");
+            // The response depends on the Origin header, so shared caches must key on it
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ORIGIN);
+
+            if (isAllowed(origin)) {
+                response.setHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, origin);
+                if (allowCredentials) {
+                    response.setHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_CREDENTIALS, "true");
+                }
+                if (!exposedHeaders.isEmpty()) {
+                    response.setHeader(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, exposedHeaders);
+                }
+                if (isOptions) {
+                    response.setHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_METHODS, allowedMethods);
+                    response.setHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_HEADERS, allowedHeaders);
+                    response.setHeader(HttpHeaders.ACCESS_CONTROL_MAX_AGE, maxAge);
+                }
+            } else {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Rejected CORS origin {} for {} {}", origin, request.getMethod(), request.getRequestURI());
+                }
+                if (isOptions && request.getHeader(HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD) != null) {
+                    response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+                    return;
+                }
+            }
         }
-        
-        if ("OPTIONS".equalsIgnoreCase(request.getMethod())) {
+
+        if (isOptions) {
             response.setStatus(HttpServletResponse.SC_OK);
         } else {
             chain.doFilter(req, res);
         }
     }
 
-    @Override
-    public void init(FilterConfig filterConfig) {
+    private boolean isAllowed(String origin) {
+        String normalized = origin.toLowerCase(Locale.ROOT);
+        if (exactOrigins.contains(normalized)) {
+            return true;
+        }
+        if (originPatterns.isEmpty()) {
+            return false;
+        }
+        Boolean cached = patternDecisions.get(normalized);
+        if (cached != null) {
+            return cached;
+        }
+        boolean allowed = originPatterns.stream().anyMatch(pattern -> pattern.matcher(normalized).matches());
+        if (patternDecisions.size() < MAX_CACHED_ORIGIN_DECISIONS) {
+            patternDecisions.put(normalized, allowed);
+        }
+        return allowed;
     }
 
-    @Override
-    public void destroy() {
+    private static String joinList(String commaSeparated) {
+        return String.join(", ", commaSeparated.trim().isEmpty()
+                ? new String[0]
+                : commaSeparated.trim().split("\\s*,\\s*"));
     }
-}
\ No newline at end of file
+}
@@ -1,10 +1,14 @@
 package com.pharmacare.api.config;
 
 import com.pharmacare.api.model.ERole;
+import com.pharmacare.api.model.Inventory;
 import com.pharmacare.api.model.Role;
+import com.pharmacare.api.reminder.ReminderDispatchProperties;
+import com.pharmacare.api.reminder.ReminderDispatchStore;
 import com.pharmacare.api.repository.RoleRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -12,6 +16,8 @@ import org.springframework.stereotype.Component;
 public class DatabaseInitializer implements CommandLineRunner {
 
     private final RoleRepository roleRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ReminderDispatchProperties reminderDispatchProperties;
 
     @Override
     public void run(String... args) {
@@ -21,5 +27,43 @@ public class DatabaseInitializer implements CommandLineRunner {
                 roleRepository.save(new Role(role));
             }
         }
+
+        createInventoryBatchConstraint();
+        createReminderIndexes();
+    }
+
+    /**
+     * Partial index for the reminder dispatcher, which only ever scans pending reminders of one shard by
+     * time. The shard count is part of the indexed expression, so the index is named after it. Hibernate
+     * cannot declare expression or partial indexes, so it is created here.
+     */
+    private void createReminderIndexes() {
+        int shards = reminderDispatchProperties.getShards();
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_reminders_dispatch_" + shards + " ON reminders (" +
+                ReminderDispatchStore.shardExpression("user_id", shards) + ", reminder_time, id) " +
+                "WHERE notified_at IS NULL AND completed = false");
+    }
+
+    /**
+     * The bulk import's {@code ON CONFLICT} needs the unique (pharmacy, medication, batch) constraint.
+     * Hibernate's schema update cannot add it to a table that already holds duplicates, and only logs the
+     * failure, so it is added here. Existing duplicates are never merged at startup: the application
+     * refuses to start until {@code db/merge-duplicate-inventory-batches.sql} has been reviewed and run.
+     */
+    private void createInventoryBatchConstraint() {
+        Boolean exists = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = ?)", Boolean.class, Inventory.BATCH_CONSTRAINT);
+        if (Boolean.TRUE.equals(exists)) {
+            return;
+        }
+        Long duplicates = jdbcTemplate.queryForObject("SELECT count(*) FROM (SELECT 1 FROM inventory " +
+                "GROUP BY pharmacy_id, medication_name, batch_number HAVING count(*) > 1) d", Long.class);
+        if (duplicates != null && duplicates > 0) {
+            throw new IllegalStateException(duplicates + " inventory batches are stored more than once, so the " +
+                    Inventory.BATCH_CONSTRAINT + " constraint cannot be added. Review and run " +
+                    "db/merge-duplicate-inventory-batches.sql, then restart the application.");
+        }
+        jdbcTemplate.execute("ALTER TABLE inventory ADD CONSTRAINT " + Inventory.BATCH_CONSTRAINT +
+                " UNIQUE (pharmacy_id, medication_name, batch_number)");
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,55 @@
+package com.pharmacare.api.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sequences created by Hibernate start at 1, but tables populated while ids were IDENTITY-generated
+ * already hold higher ids. Moves any such sequence past the current maximum so the first pooled block
+ * cannot collide with existing rows. Sequences that are already ahead are left untouched.
+ * <p>
+ * Runs while the application context starts: after Hibernate has updated the schema, and before the web
+ * server accepts connections, so no request can draw an id from a sequence that is still behind.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class IdSequenceAligner {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdSequenceAligner.class);
+
+    // Must match the allocationSize of the @SequenceGenerator on each entity
+    private static final int ID_ALLOCATION_SIZE = 50;
+
+    // Tables whose ids moved from IDENTITY columns to pooled sequences, keyed by sequence name
+    private static final Map<String, String> SEQUENCE_TABLES = Map.of(
+            "bills_seq", "bills",
+            "bill_items_seq", "bill_items",
+            "inventory_seq", "inventory",
+            "reminders_seq", "reminders",
+            "donations_seq", "donations"
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void alignIdSequences() {
+        SEQUENCE_TABLES.forEach((sequence, table) -> {
+            String maxId = "(SELECT COALESCE(MAX(id), 0) FROM " + table + ")";
+            List<Long> aligned = jdbcTemplate.queryForList(
+                    "SELECT setval('" + sequence + "', " + maxId + " + " + ID_ALLOCATION_SIZE + ") " +
+                    "WHERE (SELECT last_value FROM " + sequence + ") < " + maxId, Long.class);
+            if (!aligned.isEmpty()) {
+                logger.info("Advanced id sequence {} to {} to clear existing {} rows", sequence, aligned.get(0), table);
+            }
+        });
+    }
+}
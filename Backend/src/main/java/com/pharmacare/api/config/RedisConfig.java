@@ -1,7 +1,14 @@
 package com.pharmacare.api.config;
 
+import com.pharmacare.api.cache.TwoLevelCache;
+import com.pharmacare.api.cache.TwoLevelCacheManager;
+import com.pharmacare.api.cache.TwoLevelCacheProperties;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.CacheManager;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.boot.actuate.metrics.cache.RedisCacheMetrics;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
@@ -10,13 +17,20 @@ import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
 
 @Configuration
+@EnableConfigurationProperties(TwoLevelCacheProperties.class)
 public class RedisConfig {
 
     @Value("${spring.redis.host}")
@@ -47,15 +61,55 @@ public class RedisConfig {
     }
 
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory connectionFactory) {
+    public TwoLevelCacheManager cacheManager(RedisConnectionFactory connectionFactory,
+                                             StringRedisTemplate stringRedisTemplate,
+                                             TwoLevelCacheProperties cacheProperties) {
+        Duration defaultTtl = Duration.ofMillis(timeToLive);
         RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
-                .entryTtl(Duration.ofMillis(timeToLive))
+                .entryTtl(defaultTtl)
                 .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
                 .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new GenericJackson2JsonRedisSerializer()))
                 .disableCachingNullValues();
 
-        return RedisCacheManager.builder(connectionFactory)
+        Map<String, RedisCacheConfiguration> cacheConfigs = new HashMap<>();
+        cacheProperties.getCaches().forEach((name, spec) -> {
+            if (spec.getTtl() != null) {
+                cacheConfigs.put(name, config.entryTtl(spec.getTtl()));
+            }
+        });
+
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(config)
+                .withInitialCacheConfigurations(cacheConfigs)
+                .enableStatistics()
                 .build();
+        redisCacheManager.afterPropertiesSet();
+
+        return new TwoLevelCacheManager(redisCacheManager, stringRedisTemplate, cacheProperties, defaultTtl);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                            TwoLevelCacheManager cacheManager,
+                                                                            TwoLevelCacheProperties cacheProperties) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(
+                (message, pattern) -> cacheManager.onInvalidation(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(cacheProperties.getInvalidationChannel()));
+        return container;
+    }
+
+    /**
+     * Publishes hit, miss and eviction metrics for both tiers, distinguished by a {@code tier} tag.
+     */
+    @Bean
+    public CacheMeterBinderProvider<TwoLevelCache> twoLevelCacheMeterBinderProvider() {
+        return (cache, tags) -> registry -> {
+            new CaffeineCacheMetrics<>(cache.getNativeCache(), cache.getName(), Tags.of(tags).and("tier", "local"))
+                    .bindTo(registry);
+            new RedisCacheMetrics(cache.getRemoteCache(), Tags.of(tags).and("tier", "remote"))
+                    .bindTo(registry);
+        };
     }
 } 
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.pharmacare.api.config;
+
+import com.pharmacare.api.reminder.LoggingReminderNotifier;
+import com.pharmacare.api.reminder.MailReminderNotifier;
+import com.pharmacare.api.reminder.ReminderDispatchProperties;
+import com.pharmacare.api.reminder.ReminderNotifier;
+import com.pharmacare.api.reminder.ReminderStreamProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mail.javamail.JavaMailSender;
+
+@Configuration
+@EnableConfigurationProperties({ReminderDispatchProperties.class, ReminderStreamProperties.class})
+public class ReminderConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "reminders.dispatch.notifier", havingValue = "mail")
+    public ReminderNotifier mailReminderNotifier(JavaMailSender mailSender, ReminderDispatchProperties properties) {
+        return new MailReminderNotifier(mailSender, properties.getMailFrom());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "reminders.dispatch.notifier", havingValue = "log", matchIfMissing = true)
+    public ReminderNotifier loggingReminderNotifier() {
+        return new LoggingReminderNotifier();
+    }
+}
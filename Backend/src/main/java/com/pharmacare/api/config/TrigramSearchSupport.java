@@ -0,0 +1,72 @@
+package com.pharmacare.api.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.Set;
+
+/**
+ * Inventory name search relies on pg_trgm. Creating the extension needs elevated privileges on some
+ * hosts, so at startup this tries to create it and its index, then records once whether the extension is
+ * installed. Search uses the plain substring query when it is not, instead of sending a trigram query
+ * that would fail on every request.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class TrigramSearchSupport {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrigramSearchSupport.class);
+
+    // undefined_function and undefined_object, raised once similarity() or gin_trgm_ops is gone
+    private static final Set<String> MISSING_EXTENSION_STATES = Set.of("42883", "42704");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile boolean available;
+
+    @PostConstruct
+    public void createSearchIndexes() {
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_inventory_name_trgm " +
+                    "ON inventory USING gin (lower(medication_name) gin_trgm_ops)");
+        } catch (DataAccessException e) {
+            logger.warn("Trigram search index not created: {}", e.getMessage());
+        }
+        available = Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm')", Boolean.class));
+        if (!available) {
+            logger.warn("pg_trgm is not installed, inventory search will use substring matching");
+        }
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * Switches search to substring matching for good if a trigram query failed because the extension was
+     * dropped while the application was running. Other failures, such as timeouts or lost connections,
+     * leave trigram search enabled.
+     *
+     * @return whether trigram search is now disabled
+     */
+    public boolean markUnavailableIfMissing(DataAccessException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException
+                    && MISSING_EXTENSION_STATES.contains(sqlException.getSQLState())) {
+                available = false;
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -6,9 +6,12 @@ import com.pharmacare.api.dto.LoginRequestDto;
 import com.pharmacare.api.dto.PharmacyAuthResponseDto;
 import com.pharmacare.api.dto.PharmacySignupRequestDto;
 import com.pharmacare.api.dto.PharmacyStaffDto;
+import com.pharmacare.api.dto.RefreshTokenRequestDto;
 import com.pharmacare.api.dto.SignupRequestDto;
+import com.pharmacare.api.dto.TokenRefreshResponseDto;
 import com.pharmacare.api.dto.UserDto;
 import com.pharmacare.api.dto.ValidatedUserDto;
+import com.pharmacare.api.exception.ServiceUnavailableException;
 import com.pharmacare.api.model.ERole;
 import com.pharmacare.api.model.Pharmacy;
 import com.pharmacare.api.model.PharmacyStaff;
@@ -18,12 +21,19 @@ import com.pharmacare.api.repository.PharmacyRepository;
 import com.pharmacare.api.repository.PharmacyStaffRepository;
 import com.pharmacare.api.repository.RoleRepository;
 import com.pharmacare.api.repository.UserRepository;
+import com.pharmacare.api.repository.UserRepository.UserAccessView;
 import com.pharmacare.api.security.JwtTokenProvider;
+import com.pharmacare.api.security.PasswordHashingExecutor;
+import com.pharmacare.api.security.PharmacyMembershipCache;
+import com.pharmacare.api.security.RefreshTokenService;
+import com.pharmacare.api.security.RefreshTokenService.RefreshGrant;
+import com.pharmacare.api.security.ValidatedUserCache;
 import com.pharmacare.api.security.oauth2.UserPrincipal;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -33,12 +43,16 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.net.URI;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 @RestController
@@ -55,217 +69,263 @@ public class AuthController {
     private final JwtTokenProvider tokenProvider;
     private final PharmacyRepository pharmacyRepository;
     private final PharmacyStaffRepository pharmacyStaffRepository;
+    private final PharmacyMembershipCache membershipCache;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final RefreshTokenService refreshTokenService;
+    private final ValidatedUserCache validatedUserCache;
 
     @PostMapping("/login")
-    public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequestDto loginRequest) {
-        try {
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(
-                            loginRequest.getEmail(),
-                            loginRequest.getPassword()
-                    )
-            );
-
-            UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-            
-            // --- Add Role Check ---
-            boolean isRegularUser = userPrincipal.getAuthorities().stream()
-                    .anyMatch(grantedAuthority -> grantedAuthority.getAuthority().equals(ERole.ROLE_USER.name()));
-            boolean isPharmacyStaff = userPrincipal.getAuthorities().stream()
-                    .anyMatch(grantedAuthority -> grantedAuthority.getAuthority().equals(ERole.ROLE_PHARMACY.name()));
-
-            if (!isRegularUser || isPharmacyStaff) { // Must be USER and explicitly NOT PHARMACY
-                logger.warn("Login attempt failed for user {} via /auth/login: Incorrect role.", loginRequest.getEmail());
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                        .body(new ErrorResponseDto("Unauthorized: Access denied for this user type."));
-            }
-            // --- End Role Check ---
+    public CompletableFuture<ResponseEntity<?>> authenticateUser(@Valid @RequestBody LoginRequestDto loginRequest) {
+        return passwordHashingExecutor.<Authentication, ResponseEntity<?>>submit(() -> authenticationManager.authenticate(
+                        new UsernamePasswordAuthenticationToken(
+                                loginRequest.getEmail(),
+                                loginRequest.getPassword()
+                        )
+                ), authentication -> completeUserLogin(authentication, loginRequest))
+                .exceptionally(ex -> authenticationFailed("Login error", ex));
+    }
 
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-            String jwt = tokenProvider.generateToken(authentication);
-            
-            UserDto userDto = mapToUserDto(userRepository.findById(userPrincipal.getId()).orElseThrow());
+    private ResponseEntity<?> completeUserLogin(Authentication authentication, LoginRequestDto loginRequest) {
+        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+        
+        // --- Add Role Check ---
+        boolean isRegularUser = userPrincipal.getAuthorities().stream()
+                .anyMatch(grantedAuthority -> grantedAuthority.getAuthority().equals(ERole.ROLE_USER.name()));
+        boolean isPharmacyStaff = userPrincipal.getAuthorities().stream()
+                .anyMatch(grantedAuthority -> grantedAuthority.getAuthority().equals(ERole.ROLE_PHARMACY.name()));
 
-            return ResponseEntity.ok(new AuthResponseDto(jwt, userDto));
-        } catch (Exception e) {
-            logger.error("Login error", e);
+        if (!isRegularUser || isPharmacyStaff) { // Must be USER and explicitly NOT PHARMACY
+            logger.warn("Login attempt failed for user {} via /auth/login: Incorrect role.", loginRequest.getEmail());
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                    .body(new ErrorResponseDto("Authentication failed: " + e.getMessage()));
+                    .body(new ErrorResponseDto("Unauthorized: Access denied for this user type."));
         }
+        // --- End Role Check ---
+
+        RefreshGrant refreshGrant = refreshTokenService.issue(userPrincipal.getEmail());
+        String jwt = tokenProvider.generateToken(refreshGrant.subject(), refreshGrant.family());
+        
+        UserDto userDto = mapToUserDto(userRepository.findById(userPrincipal.getId()).orElseThrow());
+
+        return ResponseEntity.ok(new AuthResponseDto(jwt, userDto, refreshGrant.refreshToken()));
     }
 
     @PostMapping("/signup")
-    public ResponseEntity<?> registerUser(@Valid @RequestBody SignupRequestDto signupRequest) {
-        try {
-            logger.info("Registering user with email: {}", signupRequest.getEmail());
-            
-            if (userRepository.existsByEmail(signupRequest.getEmail())) {
-                return ResponseEntity.badRequest()
-                        .body(new ErrorResponseDto("Email is already in use!"));
-            }
-
-            // Create new user's account
-            User user = new User(
-                    signupRequest.getFirstName(),
-                    signupRequest.getLastName(),
-                    signupRequest.getEmail(),
-                    passwordEncoder.encode(signupRequest.getPassword())
-            );
-
-            Set<Role> roles = new HashSet<>();
-            Role userRole = roleRepository.findByName(ERole.ROLE_USER)
-                    .orElseThrow(() -> new RuntimeException("Error: Role is not found."));
-            roles.add(userRole);
-            user.setRoles(roles);
-            user.setEnabled(true);
-
-            User savedUser = userRepository.save(user);
-            logger.info("User registered successfully with ID: {}", savedUser.getId());
-
-            URI location = ServletUriComponentsBuilder
-                    .fromCurrentContextPath().path("/users/{id}")
-                    .buildAndExpand(savedUser.getId()).toUri();
-
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(
-                            signupRequest.getEmail(),
-                            signupRequest.getPassword()
-                    )
-            );
+    public CompletableFuture<ResponseEntity<?>> registerUser(@Valid @RequestBody SignupRequestDto signupRequest) {
+        logger.info("Registering user with email: {}", signupRequest.getEmail());
+        
+        if (userRepository.existsByEmail(signupRequest.getEmail())) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(new ErrorResponseDto("Email is already in use!")));
+        }
 
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-            String jwt = tokenProvider.generateToken(authentication);
-            
-            UserDto userDto = mapToUserDto(savedUser);
+        // The request context is not available on the hashing thread
+        UriComponentsBuilder userUri = ServletUriComponentsBuilder.fromCurrentContextPath().path("/users/{id}");
 
-            return ResponseEntity.created(location).body(new AuthResponseDto(jwt, userDto));
-        } catch (Exception e) {
-            logger.error("Registration error", e);
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body(new ErrorResponseDto("Registration failed: " + e.getMessage()));
-        }
+        return passwordHashingExecutor.<String, ResponseEntity<?>>submit(
+                        () -> passwordEncoder.encode(signupRequest.getPassword()),
+                        passwordHash -> {
+                    // Create new user's account
+                    User user = new User(
+                            signupRequest.getFirstName(),
+                            signupRequest.getLastName(),
+                            signupRequest.getEmail(),
+                            passwordHash
+                    );
+
+                    Set<Role> roles = new HashSet<>();
+                    Role userRole = roleRepository.findByName(ERole.ROLE_USER)
+                            .orElseThrow(() -> new RuntimeException("Error: Role is not found."));
+                    roles.add(userRole);
+                    user.setRoles(roles);
+                    user.setEnabled(true);
+
+                    User savedUser = userRepository.save(user);
+                    logger.info("User registered successfully with ID: {}", savedUser.getId());
+
+                    URI location = userUri.buildAndExpand(savedUser.getId()).toUri();
+
+                    // The password was just set, so there is no need to verify it again
+                    RefreshGrant refreshGrant = refreshTokenService.issue(savedUser.getEmail());
+                    String jwt = tokenProvider.generateToken(refreshGrant.subject(), refreshGrant.family());
+                    
+                    UserDto userDto = mapToUserDto(savedUser);
+
+                    return ResponseEntity.created(location).body(new AuthResponseDto(jwt, userDto, refreshGrant.refreshToken()));
+                })
+                .exceptionally(ex -> {
+                    Throwable cause = unwrap(ex);
+                    if (cause instanceof ServiceUnavailableException unavailable) {
+                        throw unavailable;
+                    }
+                    logger.error("Registration error", cause);
+                    return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                            .body(new ErrorResponseDto("Registration failed: " + cause.getMessage()));
+                });
     }
     
     @PostMapping("/pharmacy/signup")
-    public ResponseEntity<?> registerPharmacy(@Valid @RequestBody PharmacySignupRequestDto signupRequest) {
+    public CompletableFuture<ResponseEntity<?>> registerPharmacy(@Valid @RequestBody PharmacySignupRequestDto signupRequest) {
         logger.info("Attempting to register pharmacy with email: {} and admin email: {}", signupRequest.getPharmacyEmail(), signupRequest.getAdminEmail());
 
         if (userRepository.existsByEmail(signupRequest.getAdminEmail())) {
-            return ResponseEntity.badRequest().body(new ErrorResponseDto("Admin email is already in use!"));
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body(new ErrorResponseDto("Admin email is already in use!")));
         }
         if (pharmacyRepository.existsByRegistrationNumber(signupRequest.getRegistrationNumber())) {
-            return ResponseEntity.badRequest().body(new ErrorResponseDto("Pharmacy registration number already exists!"));
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body(new ErrorResponseDto("Pharmacy registration number already exists!")));
         }
 
-        try {
-            // Create User for the admin staff
-            User adminUser = new User(
-                    signupRequest.getAdminFirstName(),
-                    signupRequest.getAdminLastName(),
-                    signupRequest.getAdminEmail(),
-                    passwordEncoder.encode(signupRequest.getAdminPassword())
-            );
-            adminUser.setEnabled(true); // Assuming pharmacy admin is enabled immediately
-            
-            Set<Role> roles = new HashSet<>();
-            Role pharmacyRole = roleRepository.findByName(ERole.ROLE_PHARMACY)
-                    .orElseThrow(() -> new RuntimeException("Error: ROLE_PHARMACY is not found."));
-            roles.add(pharmacyRole);
-            adminUser.setRoles(roles);
-            User savedAdminUser = userRepository.save(adminUser);
-            logger.info("Pharmacy Admin User registered successfully with ID: {}", savedAdminUser.getId());
-
-            // Create Pharmacy
-            Pharmacy pharmacy = Pharmacy.builder()
-                    .name(signupRequest.getPharmacyName())
-                    .registrationNumber(signupRequest.getRegistrationNumber())
-                    .address(signupRequest.getAddress())
-                    .phone(signupRequest.getPhone())
-                    .email(signupRequest.getPharmacyEmail())
-                    .website(signupRequest.getWebsite())
-                    .owner(savedAdminUser) // Set the created admin user as the owner? Or should this be separate?
-                    .active(true)
-                    .build();
-            Pharmacy savedPharmacy = pharmacyRepository.save(pharmacy);
-            logger.info("Pharmacy registered successfully with ID: {}", savedPharmacy.getId());
-
-            // Create PharmacyStaff entry for the admin
-            PharmacyStaff adminStaff = PharmacyStaff.builder()
-                    .pharmacy(savedPharmacy)
-                    .user(savedAdminUser)
-                    .role(PharmacyStaff.StaffRole.ADMIN) // Or OWNER? Needs clarification based on Pharmacy model
-                    .active(true)
-                    .build();
-            pharmacyStaffRepository.save(adminStaff);
-            logger.info("Pharmacy Admin Staff created successfully with ID: {}", adminStaff.getId());
-
-            // Optionally: Authenticate and return token immediately
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(
+        return passwordHashingExecutor.<String, ResponseEntity<?>>submit(
+                        () -> passwordEncoder.encode(signupRequest.getAdminPassword()),
+                        passwordHash -> {
+                    // Create User for the admin staff
+                    User adminUser = new User(
+                            signupRequest.getAdminFirstName(),
+                            signupRequest.getAdminLastName(),
                             signupRequest.getAdminEmail(),
-                            signupRequest.getAdminPassword()
-                    )
-            );
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-            String jwt = tokenProvider.generateToken(authentication);
-
-            PharmacyStaffDto staffDto = mapToPharmacyStaffDto(adminStaff);
-            
-            return ResponseEntity.ok(new PharmacyAuthResponseDto(jwt, staffDto));
-
-        } catch (Exception e) {
-            logger.error("Pharmacy registration error", e);
-            // Consider adding more specific error handling and possibly rollback
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new ErrorResponseDto("Pharmacy registration failed: " + e.getMessage()));
-        }
+                            passwordHash
+                    );
+                    adminUser.setEnabled(true); // Assuming pharmacy admin is enabled immediately
+                    
+                    Set<Role> roles = new HashSet<>();
+                    Role pharmacyRole = roleRepository.findByName(ERole.ROLE_PHARMACY)
+                            .orElseThrow(() -> new RuntimeException("Error: ROLE_PHARMACY is not found."));
+                    roles.add(pharmacyRole);
+                    adminUser.setRoles(roles);
+                    User savedAdminUser = userRepository.save(adminUser);
+                    logger.info("Pharmacy Admin User registered successfully with ID: {}", savedAdminUser.getId());
+
+                    // Create Pharmacy
+                    Pharmacy pharmacy = Pharmacy.builder()
+                            .name(signupRequest.getPharmacyName())
+                            .registrationNumber(signupRequest.getRegistrationNumber())
+                            .address(signupRequest.getAddress())
+                            .phone(signupRequest.getPhone())
+                            .email(signupRequest.getPharmacyEmail())
+                            .website(signupRequest.getWebsite())
+                            .owner(savedAdminUser) // Set the created admin user as the owner? Or should this be separate?
+                            .active(true)
+                            .build();
+                    Pharmacy savedPharmacy = pharmacyRepository.save(pharmacy);
+                    logger.info("Pharmacy registered successfully with ID: {}", savedPharmacy.getId());
+
+                    // Create PharmacyStaff entry for the admin
+                    PharmacyStaff adminStaff = PharmacyStaff.builder()
+                            .pharmacy(savedPharmacy)
+                            .user(savedAdminUser)
+                            .role(PharmacyStaff.StaffRole.ADMIN) // Or OWNER? Needs clarification based on Pharmacy model
+                            .active(true)
+                            .build();
+                    pharmacyStaffRepository.save(adminStaff);
+                    membershipCache.evict(savedAdminUser.getId());
+                    logger.info("Pharmacy Admin Staff created successfully with ID: {}", adminStaff.getId());
+
+                    // Return a token immediately; the password was just set, so there is no need to verify it again
+                    RefreshGrant refreshGrant = refreshTokenService.issue(savedAdminUser.getEmail());
+                    String jwt = tokenProvider.generateToken(refreshGrant.subject(), refreshGrant.family());
+
+                    PharmacyStaffDto staffDto = mapToPharmacyStaffDto(adminStaff);
+                    
+                    return ResponseEntity.ok(new PharmacyAuthResponseDto(jwt, staffDto, refreshGrant.refreshToken()));
+                })
+                .exceptionally(ex -> {
+                    Throwable cause = unwrap(ex);
+                    if (cause instanceof ServiceUnavailableException unavailable) {
+                        throw unavailable;
+                    }
+                    logger.error("Pharmacy registration error", cause);
+                    // Consider adding more specific error handling and possibly rollback
+                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .body(new ErrorResponseDto("Pharmacy registration failed: " + cause.getMessage()));
+                });
     }
 
     @PostMapping("/pharmacy/login")
-    public ResponseEntity<?> authenticatePharmacyStaff(@Valid @RequestBody LoginRequestDto loginRequest) {
+    public CompletableFuture<ResponseEntity<?>> authenticatePharmacyStaff(@Valid @RequestBody LoginRequestDto loginRequest) {
         logger.info("Attempting pharmacy staff login for email: {}", loginRequest.getEmail());
-        try {
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(
-                            loginRequest.getEmail(),
-                            loginRequest.getPassword()
-                    )
-            );
-
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-            String jwt = tokenProvider.generateToken(authentication);
+        return passwordHashingExecutor.<Authentication, ResponseEntity<?>>submit(() -> authenticationManager.authenticate(
+                        new UsernamePasswordAuthenticationToken(
+                                loginRequest.getEmail(),
+                                loginRequest.getPassword()
+                        )
+                ), this::completePharmacyStaffLogin)
+                .exceptionally(ex -> authenticationFailed("Pharmacy staff login error", ex));
+    }
 
-            UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+    private ResponseEntity<?> completePharmacyStaffLogin(Authentication authentication) {
+        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+        
+        // Verify user has ROLE_PHARMACY
+        boolean isPharmacyStaff = userPrincipal.getAuthorities().stream()
+            .anyMatch(grantedAuthority -> grantedAuthority.getAuthority().equals(ERole.ROLE_PHARMACY.name()));
             
-            // Verify user has ROLE_PHARMACY
-            boolean isPharmacyStaff = userPrincipal.getAuthorities().stream()
-                .anyMatch(grantedAuthority -> grantedAuthority.getAuthority().equals(ERole.ROLE_PHARMACY.name()));
-                
-            if (!isPharmacyStaff) {
-                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                    .body(new ErrorResponseDto("Unauthorized: User is not pharmacy staff."));
-            }
+        if (!isPharmacyStaff) {
+             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .body(new ErrorResponseDto("Unauthorized: User is not pharmacy staff."));
+        }
 
-            // Find associated PharmacyStaff details
-            List<PharmacyStaff> staffAssignments = pharmacyStaffRepository.findByUserId(userPrincipal.getId());
-            if (staffAssignments.isEmpty()) {
-                 throw new RuntimeException("Pharmacy staff details not found for user ID: " + userPrincipal.getId());
-            }
-            // Assuming a user belongs to at least one pharmacy staff role if ROLE_PHARMACY is present
-            PharmacyStaff staff = staffAssignments.get(0); 
+        // Find associated PharmacyStaff details
+        // Assuming a user belongs to at least one pharmacy staff role if ROLE_PHARMACY is present
+        PharmacyStaffDto staffDto = loadUserAccess(userPrincipal.getId())
+                .map(UserAccess::primaryStaffAssignment)
+                .orElseThrow(() -> new RuntimeException("Pharmacy staff details not found for user ID: " + userPrincipal.getId()));
 
-            PharmacyStaffDto staffDto = mapToPharmacyStaffDto(staff);
+        RefreshGrant refreshGrant = refreshTokenService.issue(userPrincipal.getEmail());
+        String jwt = tokenProvider.generateToken(refreshGrant.subject(), refreshGrant.family());
 
-            return ResponseEntity.ok(new PharmacyAuthResponseDto(jwt, staffDto));
-        } catch (Exception e) {
-            logger.error("Pharmacy staff login error", e);
+        return ResponseEntity.ok(new PharmacyAuthResponseDto(jwt, staffDto, refreshGrant.refreshToken()));
+    }
+
+    /**
+     * Exchanges a refresh token for a new access token and the next refresh token of the same family.
+     * No password check is involved, so clients can keep access tokens short-lived.
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refreshToken(@Valid @RequestBody RefreshTokenRequestDto refreshRequest) {
+        Optional<RefreshGrant> refreshGrant = refreshTokenService.rotate(refreshRequest.getRefreshToken());
+        boolean userActive = refreshGrant
+                .flatMap(grant -> userRepository.findByEmail(grant.subject()))
+                .map(User::isEnabled)
+                .orElse(false);
+        if (!userActive) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                    .body(new ErrorResponseDto("Authentication failed: " + e.getMessage()));
+                    .body(new ErrorResponseDto("Refresh token is invalid or expired."));
         }
+
+        RefreshGrant grant = refreshGrant.get();
+        String jwt = tokenProvider.generateToken(grant.subject(), grant.family());
+        return ResponseEntity.ok(new TokenRefreshResponseDto(jwt, grant.refreshToken()));
+    }
+
+    /**
+     * Ends the session the refresh token belongs to. Access tokens of the same family stop working too.
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@Valid @RequestBody RefreshTokenRequestDto logoutRequest) {
+        refreshTokenService.revoke(logoutRequest.getRefreshToken());
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Maps a failed login to 401. A saturated hashing pool is rethrown so that it is answered with 503.
+     */
+    private ResponseEntity<?> authenticationFailed(String logMessage, Throwable ex) {
+        Throwable cause = unwrap(ex);
+        if (cause instanceof ServiceUnavailableException unavailable) {
+            throw unavailable;
+        }
+        logger.error(logMessage, cause);
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .body(new ErrorResponseDto("Authentication failed: " + cause.getMessage()));
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
     }
 
     @GetMapping("/validate")
-    public ResponseEntity<?> validateToken() {
+    public ResponseEntity<?> validateToken(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
         try {
             logger.debug("Token validation request received.");
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -274,46 +334,55 @@ public class AuthController {
                  return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                          .body(new ErrorResponseDto("Token validation failed: Invalid authentication context."));
             }
+
+            String token = authorization != null && authorization.startsWith("Bearer ")
+                    ? authorization.substring("Bearer ".length())
+                    : null;
+            ValidatedUserDto cached = token != null ? validatedUserCache.get(token) : null;
+            if (cached != null) {
+                return ResponseEntity.ok(cached);
+            }
             
             UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
             logger.debug("Validating token for user ID: {}", userPrincipal.getId());
             
-            // Fetch the full User entity to get roles reliably
-            User user = userRepository.findById(userPrincipal.getId())
+            // Load the user, its roles and staff assignments in one query
+            UserAccess access = loadUserAccess(userPrincipal.getId())
                     .orElseThrow(() -> new RuntimeException("User not found during validation for ID: " + userPrincipal.getId()));
             
             // Check roles from the User entity
-            boolean isPharmacy = user.getRoles().stream()
-                                   .anyMatch(role -> role.getName() == ERole.ROLE_PHARMACY);
-            boolean isUser = user.getRoles().stream()
-                                   .anyMatch(role -> role.getName() == ERole.ROLE_USER);
+            boolean isPharmacy = access.user().getRoles().contains(ERole.ROLE_PHARMACY.name());
+            boolean isUser = access.user().getRoles().contains(ERole.ROLE_USER.name());
 
+            ValidatedUserDto validatedUser;
             if (isPharmacy) {
-                logger.debug("User ID {} has ROLE_PHARMACY. Fetching staff details.", user.getId());
-                List<PharmacyStaff> staffAssignments = pharmacyStaffRepository.findByUserId(user.getId());
-                if (staffAssignments.isEmpty()) {
-                    logger.error("Inconsistency: User ID {} has ROLE_PHARMACY but no PharmacyStaff assignment found.", user.getId());
+                logger.debug("User ID {} has ROLE_PHARMACY. Fetching staff details.", userPrincipal.getId());
+                if (access.primaryStaffAssignment() == null) {
+                    logger.error("Inconsistency: User ID {} has ROLE_PHARMACY but no PharmacyStaff assignment found.", userPrincipal.getId());
                     // Return error - shouldn't happen if signup is correct
                     return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                             .body(new ErrorResponseDto("User role inconsistency detected."));
                 }
-                PharmacyStaff staff = staffAssignments.get(0); // Assuming first is primary
-                PharmacyStaffDto staffDto = mapToPharmacyStaffDto(staff);
-                logger.debug("Returning PharmacyStaff details for user ID: {}", user.getId());
-                return ResponseEntity.ok(new ValidatedUserDto("pharmacy", staffDto));
+                logger.debug("Returning PharmacyStaff details for user ID: {}", userPrincipal.getId());
+                validatedUser = new ValidatedUserDto("pharmacy", access.primaryStaffAssignment());
                  
             } else if (isUser) {
-                logger.debug("User ID {} has ROLE_USER. Returning user details.", user.getId());
-                UserDto userDto = mapToUserDto(user);
-                return ResponseEntity.ok(new ValidatedUserDto("user", userDto));
+                logger.debug("User ID {} has ROLE_USER. Returning user details.", userPrincipal.getId());
+                validatedUser = new ValidatedUserDto("user", access.user());
             } else {
                  // Handle cases with other roles (e.g., ADMIN) or no expected roles
-                 logger.warn("User ID {} has unrecognized role combination during validation.", user.getId());
+                 logger.warn("User ID {} has unrecognized role combination during validation.", userPrincipal.getId());
                  // For now, treat as unauthorized for standard flows
                  return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                          .body(new ErrorResponseDto("Token validation failed: User role not supported for this context."));
             }
 
+            if (token != null) {
+                tokenProvider.verify(token)
+                        .ifPresent(verified -> validatedUserCache.put(token, verified.expiresAt(), validatedUser));
+            }
+            return ResponseEntity.ok(validatedUser);
+
         } catch (Exception e) {
             logger.error("Token validation error", e);
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
@@ -334,6 +403,54 @@ public class AuthController {
         }
     }
     
+    /**
+     * A user's profile together with its first pharmacy staff assignment, if any.
+     */
+    private record UserAccess(UserDto user, PharmacyStaffDto primaryStaffAssignment) {
+    }
+
+    private Optional<UserAccess> loadUserAccess(Long userId) {
+        List<UserAccessView> rows = userRepository.findAccessRows(userId);
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        UserAccessView userRow = rows.get(0);
+
+        UserDto user = UserDto.builder()
+                .id(userRow.getUserId())
+                .firstName(userRow.getFirstName())
+                .lastName(userRow.getLastName())
+                .email(userRow.getEmail())
+                .imageUrl(userRow.getImageUrl())
+                .roles(rows.stream()
+                        .map(UserAccessView::getRoleName)
+                        .filter(Objects::nonNull)
+                        .map(ERole::name)
+                        .collect(Collectors.toSet()))
+                .createdAt(userRow.getCreatedAt())
+                .build();
+
+        // Rows are ordered by assignment id, so the first assignment is the oldest one
+        PharmacyStaffDto staff = rows.stream()
+                .filter(row -> row.getStaffId() != null)
+                .findFirst()
+                .map(row -> PharmacyStaffDto.builder()
+                        .id(row.getStaffId())
+                        .pharmacyId(row.getPharmacyId())
+                        .userId(row.getUserId())
+                        .role(row.getStaffRole())
+                        .active(Boolean.TRUE.equals(row.getStaffActive()))
+                        .createdAt(row.getStaffCreatedAt())
+                        .updatedAt(row.getStaffUpdatedAt())
+                        .firstName(row.getFirstName())
+                        .lastName(row.getLastName())
+                        .email(row.getEmail())
+                        .build())
+                .orElse(null);
+
+        return Optional.of(new UserAccess(user, staff));
+    }
+    
     private UserDto mapToUserDto(User user) {
         return UserDto.builder()
                 .id(user.getId())
@@ -10,23 +10,29 @@ import com.pharmacare.api.exception.ResourceNotFoundException;
 import com.pharmacare.api.model.*;
 import com.pharmacare.api.repository.*;
 import com.pharmacare.api.security.CurrentUser;
-import com.pharmacare.api.security.UserPrincipal;
+import com.pharmacare.api.security.oauth2.UserPrincipal;
+import com.pharmacare.api.service.BillNumberGenerator;
+import com.pharmacare.api.service.InventoryStatsService;
+import com.pharmacare.api.service.InventoryStatsService.StockState;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @RestController
@@ -41,12 +47,14 @@ public class BillingController {
     private final InventoryRepository inventoryRepository;
     private final PharmacyRepository pharmacyRepository;
     private final UserRepository userRepository;
-    private final PharmacyStaffRepository pharmacyStaffRepository;
+    private final BillNumberGenerator billNumberGenerator;
+    private final InventoryStatsService inventoryStatsService;
 
     // TODO: Implement GET endpoints for fetching bills (list, single)
 
     @PostMapping
-    @PreAuthorize("hasRole('PHARMACY') or hasRole('ADMIN')")
+    // Membership is checked here, before the checkout transaction opens and starts taking row locks
+    @PreAuthorize("hasRole('ADMIN') or (hasRole('PHARMACY') and @pharmacySecurityService.isPharmacyMember(#requestDto.pharmacyId, principal))")
     @Transactional
     public ResponseEntity<?> createBill(@Valid @RequestBody CreateBillRequestDto requestDto,
                                         @CurrentUser UserPrincipal currentUserPrincipal) {
@@ -56,18 +64,6 @@ public class BillingController {
             Pharmacy pharmacy = pharmacyRepository.findById(requestDto.getPharmacyId())
                     .orElseThrow(() -> new ResourceNotFoundException("Pharmacy", "id", requestDto.getPharmacyId()));
 
-             boolean isAdmin = currentUserPrincipal.getAuthorities().stream()
-                .anyMatch(auth -> auth.getAuthority().equals("ROLE_ADMIN"));
-                
-            if (!isAdmin) {
-                 boolean isMember = pharmacyStaffRepository.findByUserId(currentUserPrincipal.getId()).stream()
-                                              .anyMatch(staff -> staff.getPharmacy().getId().equals(requestDto.getPharmacyId()));
-                 if (!isMember) {
-                     logger.warn("User {} attempted to create bill for pharmacy {} without authorization", currentUserPrincipal.getEmail(), requestDto.getPharmacyId());
-                    throw new AccessDeniedException("User is not authorized to create bills for this pharmacy.");
-                 }
-            }
-
             User createdBy = userRepository.findById(currentUserPrincipal.getId())
                     .orElseThrow(() -> new ResourceNotFoundException("User", "id", currentUserPrincipal.getId()));
 
@@ -85,20 +81,33 @@ public class BillingController {
             BigDecimal calculatedTotalTax = Optional.ofNullable(requestDto.getTaxAmount()).orElse(BigDecimal.ZERO);
             BigDecimal calculatedDiscount = Optional.ofNullable(requestDto.getDiscountAmount()).orElse(BigDecimal.ZERO);
 
+            // Collapse repeated lines for the same item so the stock check sees the full requested amount
+            Map<Long, Integer> requestedQuantities = new TreeMap<>();
             for (CreateBillItemDto itemDto : requestDto.getItems()) {
-                Inventory inventoryItem = inventoryRepository.findById(itemDto.getInventoryId())
-                        .orElseThrow(() -> new ResourceNotFoundException("Inventory Item", "id", itemDto.getInventoryId()));
+                requestedQuantities.merge(itemDto.getInventoryId(), itemDto.getQuantity(), Integer::sum);
+            }
+
+            Map<Long, Inventory> inventoryById = inventoryRepository.findAllByIdForUpdate(requestedQuantities.keySet()).stream()
+                    .collect(Collectors.toMap(Inventory::getId, Function.identity()));
+
+            for (Map.Entry<Long, Integer> requested : requestedQuantities.entrySet()) {
+                Inventory inventoryItem = inventoryById.get(requested.getKey());
+                if (inventoryItem == null) {
+                    throw new ResourceNotFoundException("Inventory Item", "id", requested.getKey());
+                }
 
                 if (!inventoryItem.getPharmacy().getId().equals(pharmacy.getId())) {
-                    throw new IllegalArgumentException("Inventory item " + itemDto.getInventoryId() + " does not belong to pharmacy " + pharmacy.getId());
+                    throw new IllegalArgumentException("Inventory item " + requested.getKey() + " does not belong to pharmacy " + pharmacy.getId());
                 }
 
-                if (inventoryItem.getQuantity() < itemDto.getQuantity()) {
+                if (inventoryItem.getQuantity() < requested.getValue()) {
                     throw new InsufficientStockException("Insufficient stock for item: " + inventoryItem.getMedicationName() +
-                            " (Requested: " + itemDto.getQuantity() + ", Available: " + inventoryItem.getQuantity() + ")");
+                            " (Requested: " + requested.getValue() + ", Available: " + inventoryItem.getQuantity() + ")");
                 }
+            }
 
-                inventoryItem.setQuantity(inventoryItem.getQuantity() - itemDto.getQuantity());
+            for (CreateBillItemDto itemDto : requestDto.getItems()) {
+                Inventory inventoryItem = inventoryById.get(itemDto.getInventoryId());
 
                 BigDecimal itemSubtotal = inventoryItem.getSellingPrice().multiply(BigDecimal.valueOf(itemDto.getQuantity()));
                 BigDecimal itemDiscount = BigDecimal.ZERO; 
@@ -120,9 +129,20 @@ public class BillingController {
                 calculatedSubtotal = calculatedSubtotal.add(itemSubtotal);
             }
             
+            List<Long> rejectedItems = inventoryRepository.decrementStockIfAvailable(requestedQuantities);
+            if (!rejectedItems.isEmpty()) {
+                throw new InsufficientStockException("Insufficient stock for inventory items: " + rejectedItems);
+            }
+            // The locked rows still hold the pre-sale quantities
+            requestedQuantities.forEach((inventoryId, quantity) -> {
+                StockState before = StockState.of(inventoryById.get(inventoryId));
+                inventoryStatsService.recordChange(pharmacy.getId(), before, before.withQuantity(before.quantity() - quantity));
+            });
+
             BigDecimal calculatedTotal = calculatedSubtotal.subtract(calculatedDiscount).add(calculatedTotalTax);
 
             Bill bill = Bill.builder()
+                    .billNumber(billNumberGenerator.nextBillNumber(pharmacy))
                     .pharmacy(pharmacy)
                     .customer(customer)
                     .customerName(customer != null ? (customer.getFirstName() + " " + customer.getLastName()) : requestDto.getCustomerName()) 
@@ -155,9 +175,9 @@ public class BillingController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponseDto(e.getMessage()));
         } catch (InsufficientStockException e) {
             logger.warn("Insufficient stock during bill creation: {}", e.getMessage());
+            // Earlier lines of the batch may already be decremented; the error response must not commit them
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return ResponseEntity.status(HttpStatus.CONFLICT).body(new ErrorResponseDto(e.getMessage()));
-        } catch (AccessDeniedException e) {
-             return ResponseEntity.status(HttpStatus.FORBIDDEN).body(new ErrorResponseDto(e.getMessage()));
         } catch (IllegalArgumentException e) {
              logger.warn("Invalid argument during bill creation: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ErrorResponseDto(e.getMessage()));
@@ -2,6 +2,8 @@ package com.pharmacare.api.controller;
 
 import com.pharmacare.api.dto.ErrorResponseDto;
 import com.pharmacare.api.dto.InventoryDto;
+import com.pharmacare.api.dto.InventoryImportResultDto;
+import com.pharmacare.api.dto.InventoryPageDto;
 import com.pharmacare.api.exception.ResourceNotFoundException;
 import com.pharmacare.api.model.Inventory;
 import com.pharmacare.api.model.Pharmacy;
@@ -9,17 +11,38 @@ import com.pharmacare.api.repository.InventoryRepository;
 import com.pharmacare.api.repository.PharmacyRepository;
 import com.pharmacare.api.security.CurrentUser;
 import com.pharmacare.api.security.UserPrincipal;
+import com.pharmacare.api.service.InventoryImportService;
+import com.pharmacare.api.service.InventoryStatsService;
+import com.pharmacare.api.service.InventoryStatsService.PharmacyInventoryStats;
+import com.pharmacare.api.service.InventoryStatsService.StockState;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pharmacare.api.config.TrigramSearchSupport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.Base64;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -30,12 +53,31 @@ public class InventoryController {
 
     private static final Logger logger = LoggerFactory.getLogger(InventoryController.class);
 
+    private static final int MAX_PAGE_SIZE = 200;
+
+    private static final int MAX_SEARCH_RESULTS = 50;
+
     @Autowired
     private InventoryRepository inventoryRepository;
 
     @Autowired
     private PharmacyRepository pharmacyRepository;
 
+    @Autowired
+    private InventoryImportService inventoryImportService;
+
+    @Autowired
+    private InventoryStatsService inventoryStatsService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TrigramSearchSupport trigramSearchSupport;
+
     @GetMapping("/{pharmacyId}/items")
     @PreAuthorize("hasRole('ADMIN') or @pharmacySecurityService.isPharmacyMember(#pharmacyId, principal)")
     public ResponseEntity<List<InventoryDto>> getInventory(
@@ -73,6 +115,116 @@ public class InventoryController {
         return ResponseEntity.ok(inventoryDtos);
     }
 
+    @GetMapping("/{pharmacyId}/items/search")
+    @PreAuthorize("hasRole('ADMIN') or @pharmacySecurityService.isPharmacyMember(#pharmacyId, principal)")
+    public ResponseEntity<?> searchInventory(
+            @PathVariable Long pharmacyId,
+            @RequestParam("q") String query,
+            @RequestParam(required = false, defaultValue = "20") int limit,
+            @CurrentUser UserPrincipal currentUser) {
+
+        String term = query.trim().toLowerCase(Locale.ROOT);
+        if (term.isEmpty()) {
+            return ResponseEntity.badRequest().body(new ErrorResponseDto("Search term must not be empty."));
+        }
+        if (limit <= 0 || limit > MAX_SEARCH_RESULTS) {
+            return ResponseEntity.badRequest().body(new ErrorResponseDto("Limit must be between 1 and " + MAX_SEARCH_RESULTS + "."));
+        }
+
+        Pharmacy pharmacy = pharmacyRepository.findById(pharmacyId)
+                .orElseThrow(() -> new ResourceNotFoundException("Pharmacy", "id", pharmacyId));
+
+        List<Inventory> items = null;
+        if (trigramSearchSupport.isAvailable()) {
+            try {
+                String prefix = term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+                items = inventoryRepository.searchActiveByName(pharmacyId, term, prefix, limit);
+            } catch (DataAccessException e) {
+                if (trigramSearchSupport.markUnavailableIfMissing(e)) {
+                    logger.warn("pg_trgm is no longer available, switching to substring match: {}", e.getMessage());
+                } else {
+                    logger.warn("Trigram search failed, using substring match for this request: {}", e.getMessage());
+                }
+            }
+        }
+        if (items == null) {
+            // No pg_trgm, or the trigram query failed; degrade to an unranked substring match
+            items = inventoryRepository.findByPharmacyAndMedicationNameContainingIgnoreCase(pharmacy, term).stream()
+                    .filter(Inventory::isActive)
+                    .limit(limit)
+                    .collect(Collectors.toList());
+        }
+
+        List<InventoryDto> inventoryDtos = items.stream()
+                .map(this::convertToDto)
+                .collect(Collectors.toList());
+
+        return ResponseEntity.ok(inventoryDtos);
+    }
+
+    @GetMapping("/{pharmacyId}/items/page")
+    @PreAuthorize("hasRole('ADMIN') or @pharmacySecurityService.isPharmacyMember(#pharmacyId, principal)")
+    public ResponseEntity<?> getInventoryPage(
+            @PathVariable Long pharmacyId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false, defaultValue = "50") int size,
+            @CurrentUser UserPrincipal currentUser) {
+
+        if (size <= 0 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body(new ErrorResponseDto("Page size must be between 1 and " + MAX_PAGE_SIZE + "."));
+        }
+
+        Pharmacy pharmacy = pharmacyRepository.findById(pharmacyId)
+                .orElseThrow(() -> new ResourceNotFoundException("Pharmacy", "id", pharmacyId));
+
+        // Fetch one extra row to learn whether another page follows
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<Inventory> items;
+        if (cursor == null || cursor.isEmpty()) {
+            items = inventoryRepository.findActivePage(pharmacy, limit);
+        } else {
+            InventoryCursor position;
+            try {
+                position = InventoryCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(new ErrorResponseDto("Invalid cursor."));
+            }
+            items = inventoryRepository.findActivePageAfter(pharmacy, position.medicationName(), position.id(), limit);
+        }
+
+        String nextCursor = null;
+        if (items.size() > size) {
+            items = items.subList(0, size);
+            nextCursor = InventoryCursor.of(items.get(size - 1)).encode();
+        }
+
+        List<InventoryDto> inventoryDtos = items.stream()
+                .map(this::convertToDto)
+                .collect(Collectors.toList());
+
+        return ResponseEntity.ok(new InventoryPageDto(inventoryDtos, nextCursor));
+    }
+
+    @GetMapping(value = "/{pharmacyId}/items/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN') or @pharmacySecurityService.isPharmacyMember(#pharmacyId, principal)")
+    public ResponseEntity<StreamingResponseBody> streamInventory(
+            @PathVariable Long pharmacyId,
+            @CurrentUser UserPrincipal currentUser) {
+
+        Pharmacy pharmacy = pharmacyRepository.findById(pharmacyId)
+                .orElseThrow(() -> new ResourceNotFoundException("Pharmacy", "id", pharmacyId));
+
+        TransactionTemplate readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+
+        StreamingResponseBody body = out -> readOnlyTransaction.executeWithoutResult(status ->
+                inventoryRepository.streamActiveInventory(pharmacy, item -> writeNdjsonLine(out, convertToDto(item))));
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     @GetMapping("/stats")
     @PreAuthorize("hasRole('ADMIN') or @pharmacySecurityService.isPharmacyMember(#pharmacyId, principal)")
     public ResponseEntity<Map<String, Long>> getInventoryStats(
@@ -82,17 +234,12 @@ public class InventoryController {
         Pharmacy pharmacy = pharmacyRepository.findById(pharmacyId)
                 .orElseThrow(() -> new RuntimeException("Pharmacy not found with id: " + pharmacyId));
         
-        final int EXPIRY_THRESHOLD_DAYS = 30;
-        LocalDate expiryLimitDate = LocalDate.now().plusDays(EXPIRY_THRESHOLD_DAYS);
-
-        long totalItems = inventoryRepository.countByPharmacyAndActive(pharmacy, true);
-        long lowStockCount = inventoryRepository.countLowStockItems(pharmacy);
-        long expiringSoonCount = inventoryRepository.countExpiringBetween(pharmacy, LocalDate.now(), expiryLimitDate);
+        PharmacyInventoryStats counts = inventoryStatsService.getStats(pharmacy.getId());
 
         Map<String, Long> stats = Map.of(
-            "totalItems", totalItems,
-            "lowStockCount", lowStockCount,
-            "expiringSoonCount", expiringSoonCount
+            "totalItems", counts.totalItems(),
+            "lowStockCount", counts.lowStockCount(),
+            "expiringSoonCount", counts.expiringSoonCount()
         );
 
         return ResponseEntity.ok(stats);
@@ -121,7 +268,7 @@ public class InventoryController {
 
     @PostMapping("/{pharmacyId}/items")
     @PreAuthorize("hasRole('ADMIN') or @pharmacySecurityService.isPharmacyAdmin(#pharmacyId, principal)")
-    public ResponseEntity<InventoryDto> createInventoryItem(
+    public ResponseEntity<?> createInventoryItem(
             @PathVariable Long pharmacyId,
             @RequestBody InventoryDto inventoryDto,
             @CurrentUser UserPrincipal currentUser) {
@@ -147,10 +294,43 @@ public class InventoryController {
                 .storageConditions(inventoryDto.getStorageConditions())
                 .build();
 
-        Inventory savedInventory = inventoryRepository.save(inventory);
+        // A batch that was deleted earlier is overwritten and shown again rather than rejected
+        Optional<Long> savedId = inventoryRepository.insertOrReactivate(inventory);
+        if (savedId.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ErrorResponseDto(HttpStatus.CONFLICT.value(), "Batch " + inventoryDto.getBatchNumber()
+                            + " of " + inventoryDto.getMedicationName() + " is already in this pharmacy's inventory."));
+        }
+        Inventory savedInventory = inventoryRepository.findById(savedId.get())
+                .orElseThrow(() -> new ResourceNotFoundException("Inventory", "id", savedId.get()));
+        inventoryStatsService.recordChange(pharmacyId, null, StockState.of(savedInventory));
         return ResponseEntity.ok(convertToDto(savedInventory));
     }
 
+    @PostMapping(value = "/{pharmacyId}/items:bulk", consumes = {"text/csv", "application/x-ndjson"})
+    @PreAuthorize("hasRole('ADMIN') or @pharmacySecurityService.isPharmacyAdmin(#pharmacyId, principal)")
+    public ResponseEntity<?> bulkImportInventory(
+            @PathVariable Long pharmacyId,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body,
+            @CurrentUser UserPrincipal currentUser) throws IOException {
+
+        Pharmacy pharmacy = pharmacyRepository.findById(pharmacyId)
+                .orElseThrow(() -> new ResourceNotFoundException("Pharmacy", "id", pharmacyId));
+
+        InventoryImportService.ImportFormat format = "x-ndjson".equals(contentType.getSubtype())
+                ? InventoryImportService.ImportFormat.NDJSON
+                : InventoryImportService.ImportFormat.CSV;
+
+        try {
+            InventoryImportResultDto result = inventoryImportService.importItems(pharmacy, body, format);
+            return ResponseEntity.ok(result);
+        } finally {
+            // Imported rows are not tracked one by one, and earlier batches stay committed on failure
+            inventoryStatsService.invalidate(pharmacyId);
+        }
+    }
+
     @PutMapping("/{pharmacyId}/items/{id}")
     @PreAuthorize("hasRole('ADMIN') or @pharmacySecurityService.isPharmacyAdmin(#pharmacyId, principal)")
     public ResponseEntity<InventoryDto> updateInventoryItem(
@@ -170,6 +350,7 @@ public class InventoryController {
              return ResponseEntity.status(HttpStatus.FORBIDDEN).body(null);
         }
 
+        StockState before = StockState.of(inventory);
         inventory.setMedicationName(inventoryDto.getMedicationName());
         inventory.setManufacturer(inventoryDto.getManufacturer());
         inventory.setBatchNumber(inventoryDto.getBatchNumber());
@@ -186,6 +367,7 @@ public class InventoryController {
         inventory.setStorageConditions(inventoryDto.getStorageConditions());
 
         Inventory updatedInventory = inventoryRepository.save(inventory);
+        inventoryStatsService.recordChange(pharmacyId, before, StockState.of(updatedInventory));
         return ResponseEntity.ok(convertToDto(updatedInventory));
     }
 
@@ -207,8 +389,10 @@ public class InventoryController {
              return ResponseEntity.status(HttpStatus.FORBIDDEN).body(null);
         }
 
+        StockState before = StockState.of(inventory);
         inventory.setActive(false);
         inventoryRepository.save(inventory);
+        inventoryStatsService.recordChange(pharmacyId, before, StockState.of(inventory));
 
         return ResponseEntity.ok().build();
     }
@@ -223,10 +407,11 @@ public class InventoryController {
                  .orElseThrow(() -> new ResourceNotFoundException("Pharmacy", "id", pharmacyId));
 
         try {
-            long totalItems = inventoryRepository.countByPharmacyAndActive(pharmacy, true);
-            long lowStockCount = inventoryRepository.countLowStockItems(pharmacy);
-            long outOfStockCount = inventoryRepository.countByPharmacyAndQuantityAndActive(pharmacy, 0, true);
-            long expiredCount = inventoryRepository.countByPharmacyAndExpiryDateBeforeAndActive(pharmacy, LocalDate.now(), true);
+            PharmacyInventoryStats counts = inventoryStatsService.getStats(pharmacy.getId());
+            long totalItems = counts.totalItems();
+            long lowStockCount = counts.lowStockCount();
+            long outOfStockCount = counts.outOfStockCount();
+            long expiredCount = counts.expiredCount();
             
             long inStockCount = totalItems - lowStockCount - outOfStockCount - expiredCount;
             inStockCount = Math.max(0, inStockCount);
@@ -247,6 +432,15 @@ public class InventoryController {
         }
     }
 
+    private void writeNdjsonLine(OutputStream out, InventoryDto dto) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(dto));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     private InventoryDto convertToDto(Inventory inventory) {
         return InventoryDto.builder()
                 .id(inventory.getId())
@@ -274,6 +468,34 @@ public class InventoryController {
                 .build();
     }
 
+    /**
+     * Keyset position in (medicationName, id) order, exchanged with clients as an opaque URL-safe token.
+     */
+    private record InventoryCursor(Long id, String medicationName) {
+
+        static InventoryCursor of(Inventory inventory) {
+            return new InventoryCursor(inventory.getId(), inventory.getMedicationName());
+        }
+
+        static InventoryCursor decode(String token) {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            try {
+                return new InventoryCursor(Long.valueOf(raw.substring(0, separator)), raw.substring(separator + 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed cursor", e);
+            }
+        }
+
+        String encode() {
+            String raw = id + ":" + medicationName;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
     // --- Nested DTO for Overview Data (make public static) ---
     @Data 
     @AllArgsConstructor
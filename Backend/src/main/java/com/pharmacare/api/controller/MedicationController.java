@@ -7,6 +7,7 @@ import com.pharmacare.api.model.User;
 import com.pharmacare.api.repository.MedicationRepository;
 import com.pharmacare.api.repository.UserRepository;
 import com.pharmacare.api.security.oauth2.UserPrincipal;
+import com.pharmacare.api.service.ReminderMaterializer;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,6 +19,7 @@ import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
 import java.util.List;
+import java.util.Objects;
 
 @RestController
 @RequestMapping("/api/medications")
@@ -27,6 +29,7 @@ public class MedicationController {
     private static final Logger logger = LoggerFactory.getLogger(MedicationController.class);
     private final MedicationRepository medicationRepository;
     private final UserRepository userRepository;
+    private final ReminderMaterializer reminderMaterializer;
 
     @GetMapping
     public ResponseEntity<?> getAllMedications() {
@@ -74,7 +77,11 @@ public class MedicationController {
                     .orElseThrow(() -> new ResourceNotFoundException("User", "id", userPrincipal.getId()));
             
             medication.setUser(user);
+            medication.setScheduleMaterializedUntil(null);
             Medication savedMedication = medicationRepository.save(medication);
+            if (savedMedication.getSchedule() != null) {
+                reminderMaterializer.rematerialize(savedMedication.getId());
+            }
             
             return ResponseEntity.status(HttpStatus.CREATED).body(savedMedication);
         } catch (Exception e) {
@@ -120,6 +127,11 @@ public class MedicationController {
             Medication medication = medicationRepository.findByIdAndUserId(id, user.getId())
                     .orElseThrow(() -> new ResourceNotFoundException("Medication", "id", id));
             
+            boolean scheduleChanged = !Objects.equals(medication.getSchedule(), medicationDetails.getSchedule())
+                    || !Objects.equals(medication.getStartDate(), medicationDetails.getStartDate())
+                    || !Objects.equals(medication.getEndDate(), medicationDetails.getEndDate())
+                    || medication.isActive() != medicationDetails.isActive();
+            
             medication.setName(medicationDetails.getName());
             medication.setDescription(medicationDetails.getDescription());
             medication.setDosage(medicationDetails.getDosage());
@@ -127,8 +139,12 @@ public class MedicationController {
             medication.setStartDate(medicationDetails.getStartDate());
             medication.setEndDate(medicationDetails.getEndDate());
             medication.setActive(medicationDetails.isActive());
+            medication.setSchedule(medicationDetails.getSchedule());
             
             Medication updatedMedication = medicationRepository.save(medication);
+            if (scheduleChanged && (updatedMedication.getSchedule() != null || medication.getScheduleMaterializedUntil() != null)) {
+                reminderMaterializer.rematerialize(updatedMedication.getId());
+            }
             return ResponseEntity.ok(updatedMedication);
         } catch (ResourceNotFoundException e) {
             logger.error("Medication not found", e);
@@ -12,6 +12,7 @@ import com.pharmacare.api.repository.PharmacyRepository;
 import com.pharmacare.api.repository.PharmacyStaffRepository;
 import com.pharmacare.api.repository.UserRepository;
 import com.pharmacare.api.security.CurrentUser;
+import com.pharmacare.api.security.PharmacyMembershipCache;
 import com.pharmacare.api.security.UserPrincipal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -55,6 +56,9 @@ public class PharmacyController {
     @Autowired
     private BillRepository billRepository;
 
+    @Autowired
+    private PharmacyMembershipCache membershipCache;
+
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<List<PharmacyDto>> getAllPharmacies() {
@@ -129,6 +133,7 @@ public class PharmacyController {
                 .build();
 
         Pharmacy savedPharmacy = pharmacyRepository.save(pharmacy);
+        membershipCache.evict(actionUser.getId());
         return ResponseEntity.ok(convertToDto(savedPharmacy));
     }
 
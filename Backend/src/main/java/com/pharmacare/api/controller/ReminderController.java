@@ -1,28 +1,40 @@
 package com.pharmacare.api.controller;
 
+import com.pharmacare.api.dto.CompleteRemindersRequestDto;
 import com.pharmacare.api.dto.CreateReminderDto;
 import com.pharmacare.api.dto.ErrorResponseDto;
 import com.pharmacare.api.dto.ReminderDto;
+import com.pharmacare.api.exception.IdempotencyKeyReusedException;
 import com.pharmacare.api.exception.ResourceNotFoundException;
 import com.pharmacare.api.model.Medication;
 import com.pharmacare.api.model.Reminder;
 import com.pharmacare.api.model.User;
+import com.pharmacare.api.reminder.ReminderDispatcher;
+import com.pharmacare.api.reminder.ReminderEvent;
+import com.pharmacare.api.reminder.ReminderEventHub;
+import com.pharmacare.api.reminder.ReminderStreamProperties;
 import com.pharmacare.api.repository.MedicationRepository;
 import com.pharmacare.api.repository.ReminderRepository;
 import com.pharmacare.api.repository.UserRepository;
 import com.pharmacare.api.security.oauth2.UserPrincipal;
+import com.pharmacare.api.service.ReminderCompletionService;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import jakarta.validation.Valid;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @RestController
@@ -31,9 +43,16 @@ import java.util.stream.Collectors;
 public class ReminderController {
 
     private static final Logger logger = LoggerFactory.getLogger(ReminderController.class);
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
     private final ReminderRepository reminderRepository;
     private final MedicationRepository medicationRepository;
     private final UserRepository userRepository;
+    private final ReminderDispatcher reminderDispatcher;
+    private final ReminderEventHub reminderEventHub;
+    private final ReminderStreamProperties streamProperties;
+    private final ReminderCompletionService reminderCompletionService;
 
     @GetMapping
     public ResponseEntity<?> getAllReminders() {
@@ -83,6 +102,28 @@ public class ReminderController {
         }
     }
 
+    /**
+     * Server-sent events for the current user: {@code due} when a reminder fires and {@code completed} when
+     * one is marked taken or reopened, each carrying a {@link ReminderEvent}. Clients load the current state
+     * through the other endpoints when the stream opens and after every reconnect, and need not poll.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamReminders(HttpServletResponse response) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+
+        SseEmitter emitter = reminderEventHub.subscribe(userPrincipal.getId());
+        if (emitter == null) {
+            logger.warn("Rejecting reminder stream for user {}, {} streams open", userPrincipal.getId(),
+                    reminderEventHub.getConnectionCount());
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER,
+                    String.valueOf(streamProperties.getReconnectDelay().toSeconds()));
+        }
+        // Nothing is written for a null emitter, the status set above is the whole response
+        return emitter;
+    }
+
     @PostMapping
     public ResponseEntity<?> createReminder(@Valid @RequestBody CreateReminderDto reminderDto) {
         try {
@@ -112,6 +153,7 @@ public class ReminderController {
             
             Reminder savedReminder = reminderRepository.save(newReminder);
             logger.info("Reminder saved successfully with ID: {}", savedReminder.getId());
+            reminderDispatcher.schedule(savedReminder.getId(), user.getId(), savedReminder.getReminderTime());
             
             return ResponseEntity.status(HttpStatus.CREATED).body(savedReminder);
         } catch (ResourceNotFoundException e) {
@@ -168,6 +210,11 @@ public class ReminderController {
                 reminder.setMedication(medication);
             }
             
+            boolean wasCompleted = reminder.isCompleted();
+            boolean rescheduled = !Objects.equals(reminder.getReminderTime(), reminderDetails.getReminderTime());
+            if (rescheduled) {
+                reminder.setNotifiedAt(null);
+            }
             reminder.setReminderTime(reminderDetails.getReminderTime());
             reminder.setNotes(reminderDetails.getNotes());
             reminder.setCompleted(reminderDetails.isCompleted());
@@ -180,6 +227,13 @@ public class ReminderController {
             }
             
             Reminder updatedReminder = reminderRepository.save(reminder);
+            if (rescheduled) {
+                reminderDispatcher.schedule(updatedReminder.getId(), user.getId(), updatedReminder.getReminderTime());
+            }
+            if (wasCompleted != updatedReminder.isCompleted()) {
+                reminderEventHub.publish(ReminderEvent.completed(user.getId(), updatedReminder.getId(),
+                        updatedReminder.getReminderTime(), updatedReminder.isCompleted(), updatedReminder.getCompletedAt()));
+            }
             return ResponseEntity.ok(updatedReminder);
         } catch (ResourceNotFoundException e) {
             logger.error("Reminder or medication not found", e);
@@ -302,6 +356,10 @@ public class ReminderController {
             logger.info("Saving reminder with completed=true");
             Reminder completedReminder = reminderRepository.save(reminder);
             logger.info("Reminder successfully saved with completed=true, id={}", completedReminder.getId());
+            if (!wasAlreadyCompleted) {
+                reminderEventHub.publish(ReminderEvent.completed(user.getId(), completedReminder.getId(),
+                        completedReminder.getReminderTime(), true, completedReminder.getCompletedAt()));
+            }
             
             return ResponseEntity.ok(completedReminder);
         } catch (ResourceNotFoundException ex) {
@@ -315,4 +373,37 @@ public class ReminderController {
                             "An error occurred while completing the reminder: " + ex.getMessage()));
         }
     }
+
+    /**
+     * Completes a batch of the current user's reminders, e.g. those a mobile client marked taken while
+     * offline. Send an {@code Idempotency-Key} header to make retries of the same batch cheap; a replayed
+     * response carries {@code Idempotent-Replayed: true}.
+     */
+    @PostMapping("/complete:batch")
+    public ResponseEntity<?> completeReminders(
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody CompleteRemindersRequestDto request) {
+        try {
+            if (idempotencyKey != null && (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH)) {
+                return ResponseEntity.badRequest()
+                        .body(new ErrorResponseDto(HttpStatus.BAD_REQUEST.value(),
+                                IDEMPOTENCY_KEY_HEADER + " must be 1 to " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters"));
+            }
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+
+            ReminderCompletionService.Completion completion =
+                    reminderCompletionService.complete(userPrincipal.getId(), request.getReminders(), idempotencyKey);
+            return ResponseEntity.ok()
+                    .header(IDEMPOTENT_REPLAYED_HEADER, String.valueOf(completion.replayed()))
+                    .body(completion.result());
+        } catch (IdempotencyKeyReusedException e) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                    .body(new ErrorResponseDto(HttpStatus.UNPROCESSABLE_ENTITY.value(), e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error completing reminders", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ErrorResponseDto("Error completing reminders: " + e.getMessage()));
+        }
+    }
 } 
\ No newline at end of file
@@ -6,6 +6,7 @@ import com.pharmacare.api.exception.ResourceNotFoundException;
 import com.pharmacare.api.model.User;
 import com.pharmacare.api.repository.UserRepository;
 import com.pharmacare.api.security.CurrentUser;
+import com.pharmacare.api.security.UserPrincipalCache;
 import com.pharmacare.api.security.oauth2.UserPrincipal;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
@@ -25,6 +26,7 @@ public class UserController {
     private static final Logger logger = LoggerFactory.getLogger(UserController.class);
 
     private final UserRepository userRepository;
+    private final UserPrincipalCache userPrincipalCache;
 
     @GetMapping("/me")
     @PreAuthorize("hasRole('USER') or hasRole('PHARMACY') or hasRole('ADMIN')")
@@ -89,6 +91,7 @@ public class UserController {
             
             // Save updated user
             User updatedUser = userRepository.save(user);
+            userPrincipalCache.evict(updatedUser.getEmail());
             
             // Return complete response including non-persisted profile data
             Map<String, Object> profileResponse = new HashMap<>();
@@ -10,4 +10,9 @@ import lombok.NoArgsConstructor;
 public class AuthResponseDto {
     private String token;
     private UserDto user;
+    private String refreshToken;
+
+    public AuthResponseDto(String token, UserDto user) {
+        this(token, user, null);
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.pharmacare.api.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompleteRemindersRequestDto {
+
+    @NotEmpty
+    @Size(max = 500)
+    private List<@Valid @NotNull Item> reminders;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        @NotNull
+        private Long id;
+
+        private LocalDateTime completedAt; // when the dose was taken on the client; defaults to now
+    }
+}
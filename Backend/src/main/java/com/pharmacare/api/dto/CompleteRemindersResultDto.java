@@ -0,0 +1,18 @@
+package com.pharmacare.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompleteRemindersResultDto {
+    private List<Long> completed;
+    private List<Long> alreadyCompleted;
+    private List<Long> notFound; // unknown ids and reminders of other users
+}
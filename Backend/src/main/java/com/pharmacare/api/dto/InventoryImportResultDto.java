@@ -0,0 +1,28 @@
+package com.pharmacare.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryImportResultDto {
+    private long processedRows;
+    private long importedRows;
+    private long failedRows;
+    private List<RowError> errors;
+    private boolean errorsTruncated; // true when more rows failed than are listed in errors
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private long line;
+        private String message;
+    }
+}
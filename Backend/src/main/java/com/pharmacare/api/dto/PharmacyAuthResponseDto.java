@@ -10,4 +10,5 @@ import lombok.NoArgsConstructor;
 public class PharmacyAuthResponseDto {
     private String token;
     private PharmacyStaffDto pharmacyStaff;
+    private String refreshToken;
 } 
\ No newline at end of file
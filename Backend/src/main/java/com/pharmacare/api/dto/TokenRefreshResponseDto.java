@@ -0,0 +1,13 @@
+package com.pharmacare.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenRefreshResponseDto {
+    private String token;
+    private String refreshToken;
+}
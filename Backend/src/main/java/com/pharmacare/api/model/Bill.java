@@ -10,7 +10,6 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 
 @Data
 @Entity
@@ -21,7 +20,8 @@ import java.util.UUID;
 public class Bill {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bills_seq")
+    @SequenceGenerator(name = "bills_seq", sequenceName = "bills_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false, unique = true)
@@ -84,9 +84,6 @@ public class Bill {
     
     @PrePersist
     protected void onCreate() {
-        if (billNumber == null) {
-            billNumber = generateBillNumber();
-        }
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
     }
@@ -96,10 +93,6 @@ public class Bill {
         updatedAt = LocalDateTime.now();
     }
     
-    private String generateBillNumber() {
-        return "BILL-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-    }
-    
     public enum PaymentStatus {
         PENDING,
         PAID,
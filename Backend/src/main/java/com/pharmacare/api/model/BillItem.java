@@ -18,7 +18,8 @@ import java.time.LocalDateTime;
 public class BillItem {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bill_items_seq")
+    @SequenceGenerator(name = "bill_items_seq", sequenceName = "bill_items_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
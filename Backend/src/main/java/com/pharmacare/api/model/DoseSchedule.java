@@ -0,0 +1,203 @@
+package com.pharmacare.api.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Converter;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Structured dosing recurrence of a {@link Medication}, modelled on the iCalendar RRULE: a frequency with
+ * an interval ({@code FREQ}/{@code INTERVAL}), the weekdays a weekly schedule applies to ({@code BYDAY})
+ * and the times of day a dose is due. Recurrence is anchored at the medication's start date and ends with
+ * its end date. Times are kept to the minute, so {@link #MAX_TIMES} of them always fit their column.
+ */
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DoseSchedule {
+
+    public static final int MAX_TIMES = 24;
+
+    public enum Recurrence {
+        DAILY,
+        WEEKLY
+    }
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "schedule_recurrence", length = 10)
+    private Recurrence recurrence;
+
+    /**
+     * Every n-th day or week; {@code null} means 1.
+     */
+    @Min(value = 1, message = "Schedule interval must be at least 1")
+    @Column(name = "schedule_interval")
+    private Integer interval;
+
+    /**
+     * Weekdays for a weekly schedule; empty means the weekday of the start date.
+     */
+    @Convert(converter = DayOfWeekSetConverter.class)
+    @Column(name = "schedule_days", length = 60)
+    private Set<DayOfWeek> daysOfWeek;
+
+    @Size(max = MAX_TIMES, message = "A schedule can have at most " + MAX_TIMES + " times a day")
+    @Convert(converter = LocalTimeListConverter.class)
+    @Column(name = "schedule_times", length = 200)
+    private List<@NotNull LocalTime> times;
+
+    /**
+     * Drops seconds and duplicates and sorts the times.
+     */
+    public void setTimes(List<LocalTime> times) {
+        this.times = times == null ? null : times.stream()
+                .map(time -> time == null ? null : time.truncatedTo(ChronoUnit.MINUTES))
+                .distinct()
+                .sorted(Comparator.nullsFirst(Comparator.naturalOrder()))
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "A schedule needs both a recurrence and at least one time")
+    public boolean isComplete() {
+        return (recurrence != null) == (times != null && !times.isEmpty());
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "Days of the week can only be set on a WEEKLY schedule")
+    public boolean isDaysOfWeekAllowed() {
+        return daysOfWeek == null || daysOfWeek.isEmpty() || recurrence == Recurrence.WEEKLY;
+    }
+
+    /**
+     * Dose times in {@code (after, until]}, in order, for a schedule anchored at {@code startDate} and
+     * ending with {@code endDate} (inclusive, or open-ended when {@code null}).
+     */
+    public List<LocalDateTime> occurrencesBetween(LocalDate startDate, LocalDate endDate,
+                                                  LocalDateTime after, LocalDateTime until) {
+        List<LocalDateTime> occurrences = new ArrayList<>();
+        if (recurrence == null || times == null || times.isEmpty() || !until.isAfter(after)) {
+            return occurrences;
+        }
+        List<LocalTime> sortedTimes = times.stream().sorted().toList();
+        LocalDate day = after.toLocalDate().isBefore(startDate) ? startDate : after.toLocalDate();
+        LocalDate lastDay = endDate != null && endDate.isBefore(until.toLocalDate()) ? endDate : until.toLocalDate();
+        for (; !day.isAfter(lastDay); day = day.plusDays(1)) {
+            if (!appliesTo(startDate, day)) {
+                continue;
+            }
+            for (LocalTime time : sortedTimes) {
+                LocalDateTime occurrence = day.atTime(time);
+                if (occurrence.isAfter(after) && !occurrence.isAfter(until)) {
+                    occurrences.add(occurrence);
+                }
+            }
+        }
+        return occurrences;
+    }
+
+    /**
+     * The first dose time after {@code after}, or {@code null} if the schedule has ended. Looks at most
+     * one full period ahead.
+     */
+    public LocalDateTime nextOccurrence(LocalDate startDate, LocalDate endDate, LocalDateTime after) {
+        if (recurrence == null) {
+            return null;
+        }
+        long periodDays = (recurrence == Recurrence.WEEKLY ? 7L : 1L) * effectiveInterval();
+        LocalDateTime from = after.isBefore(startDate.atStartOfDay()) ? startDate.atStartOfDay().minusNanos(1) : after;
+        List<LocalDateTime> upcoming = occurrencesBetween(startDate, endDate, from, from.plusDays(periodDays + 1));
+        return upcoming.isEmpty() ? null : upcoming.get(0);
+    }
+
+    private boolean appliesTo(LocalDate startDate, LocalDate day) {
+        int every = effectiveInterval();
+        if (recurrence == Recurrence.DAILY) {
+            return ChronoUnit.DAYS.between(startDate, day) % every == 0;
+        }
+        DayOfWeek weekday = day.getDayOfWeek();
+        boolean onDay = daysOfWeek == null || daysOfWeek.isEmpty()
+                ? weekday == startDate.getDayOfWeek()
+                : daysOfWeek.contains(weekday);
+        if (!onDay) {
+            return false;
+        }
+        LocalDate firstWeek = startDate.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        LocalDate week = day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        return ChronoUnit.WEEKS.between(firstWeek, week) % every == 0;
+    }
+
+    private int effectiveInterval() {
+        return interval == null || interval < 1 ? 1 : interval;
+    }
+
+    @Converter
+    public static class DayOfWeekSetConverter implements AttributeConverter<Set<DayOfWeek>, String> {
+
+        @Override
+        public String convertToDatabaseColumn(Set<DayOfWeek> days) {
+            if (days == null || days.isEmpty()) {
+                return null;
+            }
+            return days.stream().sorted().map(DayOfWeek::name).collect(Collectors.joining(","));
+        }
+
+        @Override
+        public Set<DayOfWeek> convertToEntityAttribute(String column) {
+            if (column == null || column.isBlank()) {
+                return null;
+            }
+            Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+            Arrays.stream(column.split(",")).map(String::trim).map(DayOfWeek::valueOf).forEach(days::add);
+            return days;
+        }
+    }
+
+    @Converter
+    public static class LocalTimeListConverter implements AttributeConverter<List<LocalTime>, String> {
+
+        @Override
+        public String convertToDatabaseColumn(List<LocalTime> times) {
+            if (times == null || times.isEmpty()) {
+                return null;
+            }
+            return times.stream().sorted().map(LocalTime::toString).collect(Collectors.joining(","));
+        }
+
+        @Override
+        public List<LocalTime> convertToEntityAttribute(String column) {
+            if (column == null || column.isBlank()) {
+                return null;
+            }
+            List<LocalTime> times = new ArrayList<>();
+            Arrays.stream(column.split(",")).map(String::trim).map(LocalTime::parse).forEach(times::add);
+            return times;
+        }
+    }
+}
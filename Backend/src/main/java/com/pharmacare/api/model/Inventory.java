@@ -15,11 +15,26 @@ import java.time.LocalDateTime;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "inventory")
+@Table(name = "inventory", uniqueConstraints = {
+        @UniqueConstraint(name = Inventory.BATCH_CONSTRAINT,
+                columnNames = {"pharmacy_id", "medication_name", "batch_number"})
+}, indexes = {
+        @Index(name = "idx_inventory_pharmacy_name_id", columnList = "pharmacy_id, medication_name, id"),
+        @Index(name = "idx_inventory_pharmacy_active_expiry", columnList = "pharmacy_id, active, expiry_date"),
+        @Index(name = "idx_inventory_pharmacy_quantity", columnList = "pharmacy_id, quantity")
+})
 public class Inventory {
+
+    // The bulk import upserts on this constraint; DatabaseInitializer creates it on databases that predate it
+    public static final String BATCH_CONSTRAINT = "uk_inventory_pharmacy_medication_batch";
+
+    // Like Hibernate's pooled optimizer, JDBC inserts treat a nextval of v as reserving the ids
+    // v - ID_BLOCK_SIZE + 1 through v, so they never hand out the same id as Hibernate.
+    public static final int ID_BLOCK_SIZE = 50;
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "inventory_seq")
+    @SequenceGenerator(name = "inventory_seq", sequenceName = "inventory_seq", allocationSize = ID_BLOCK_SIZE)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
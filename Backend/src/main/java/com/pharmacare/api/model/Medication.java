@@ -1,6 +1,9 @@
 package com.pharmacare.api.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
@@ -48,9 +51,26 @@ public class Medication {
 
     private int stock;
 
+    // Structured dosing schedule; when set, reminders are generated for a rolling horizon
+    @Valid
+    @Embedded
+    private DoseSchedule schedule;
+
+    // Reminders have been generated up to this time
+    @JsonIgnore
+    private LocalDateTime scheduleMaterializedUntil;
+
     @CreatedDate
     private LocalDateTime createdAt;
 
     @LastModifiedDate
     private LocalDateTime updatedAt;
+
+    @JsonProperty(value = "nextDoseAt", access = JsonProperty.Access.READ_ONLY)
+    public LocalDateTime getNextDoseAt() {
+        if (schedule == null || !active || startDate == null) {
+            return null;
+        }
+        return schedule.nextOccurrence(startDate, endDate, LocalDateTime.now());
+    }
 } 
\ No newline at end of file
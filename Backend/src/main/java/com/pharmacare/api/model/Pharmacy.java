@@ -13,7 +13,9 @@ import java.time.LocalDateTime;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "pharmacies")
+@Table(name = "pharmacies", indexes = {
+        @Index(name = "idx_pharmacies_owner", columnList = "owner_id")
+})
 public class Pharmacy {
     
     @Id
@@ -13,7 +13,9 @@ import java.time.LocalDateTime;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "pharmacy_staff")
+@Table(name = "pharmacy_staff", indexes = {
+        @Index(name = "idx_pharmacy_staff_user_pharmacy", columnList = "user_id, pharmacy_id")
+})
 public class PharmacyStaff {
     
     @Id
@@ -22,7 +22,8 @@ import java.time.LocalDateTime;
 public class Reminder {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reminders_seq")
+    @SequenceGenerator(name = "reminders_seq", sequenceName = "reminders_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -40,6 +41,20 @@ public class Reminder {
 
     private LocalDateTime completedAt;
 
+    // Set by the dispatcher only after the notification was sent, so a failed or interrupted send leaves it
+    // empty and the reminder is delivered again (at least once); cleared again if its time is changed
+    @JsonIgnore
+    private LocalDateTime notifiedAt;
+
+    // Set while a dispatcher node is delivering the reminder; once it passes, the claim has lapsed and the
+    // reminder is delivered again
+    @JsonIgnore
+    private LocalDateTime claimedUntil;
+
+    // Generated from the medication's dose schedule rather than created by the user
+    @Column(name = "from_schedule", nullable = false, columnDefinition = "boolean not null default false")
+    private boolean fromSchedule;
+
     @Transient
     private Long medicationId;
 
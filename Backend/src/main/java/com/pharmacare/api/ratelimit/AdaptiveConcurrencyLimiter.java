@@ -0,0 +1,132 @@
+package com.pharmacare.api.ratelimit;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps the number of requests in flight with an AIMD limit. Every completed request grows the limit by
+ * one while the limit is actually in use; a request slower than the latency threshold, or any sign of
+ * threads queueing for a database connection, shrinks it by the backoff ratio. The limit shrinks at most
+ * once per latency threshold, so a handful of slow requests finishing together count as one signal rather
+ * than driving the limit to its minimum. Requests over the limit are rejected straight away, so the node
+ * sheds load before the connection pool saturates and every request slows down together.
+ */
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+    private final RateLimitProperties.Concurrency settings;
+    private final long latencyThresholdNanos;
+    private final ObjectProvider<DataSource> dataSourceProvider;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    private long lastDecreaseNanos;
+    private volatile HikariPoolMXBean pool;
+
+    public AdaptiveConcurrencyLimiter(RateLimitProperties properties,
+                                      ObjectProvider<DataSource> dataSourceProvider,
+                                      MeterRegistry meterRegistry) {
+        this.settings = properties.getConcurrency();
+        this.latencyThresholdNanos = settings.getLatencyThreshold().toNanos();
+        this.dataSourceProvider = dataSourceProvider;
+        this.limit = settings.getInitialLimit();
+        this.lastDecreaseNanos = System.nanoTime() - latencyThresholdNanos;
+
+        Gauge.builder("http.server.concurrency.limit", this, limiter -> limiter.limit)
+                .description("Current adaptive limit on requests in flight")
+                .register(meterRegistry);
+        Gauge.builder("http.server.concurrency.in-flight", inFlight, AtomicInteger::get)
+                .description("Requests currently counted against the adaptive limit")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return {@code true} if the request may proceed, in which case {@link #release} must follow
+     */
+    public boolean tryAcquire() {
+        if (inFlight.incrementAndGet() > (int) limit) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Ends a request started with a successful {@link #tryAcquire()}.
+     *
+     * @param latencyNanos the request's duration, or a negative value if it should not adjust the limit
+     *                     (for example a long-lived streaming response)
+     */
+    public void release(long latencyNanos) {
+        int concurrent = inFlight.getAndDecrement();
+        if (latencyNanos < 0) {
+            return;
+        }
+        if (latencyNanos > latencyThresholdNanos || connectionsContended()) {
+            decrease();
+        } else if (concurrent * 2 >= limit) {
+            increase();
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public long getRetryAfterSeconds() {
+        return settings.getRetryAfterSeconds();
+    }
+
+    private synchronized void increase() {
+        limit = Math.min(settings.getMaxLimit(), limit + 1);
+    }
+
+    private synchronized void decrease() {
+        long now = System.nanoTime();
+        if (now - lastDecreaseNanos < latencyThresholdNanos) {
+            // Requests finishing now were admitted under the previous limit
+            return;
+        }
+        lastDecreaseNanos = now;
+        double reduced = Math.max(settings.getMinLimit(), limit * settings.getBackoffRatio());
+        if ((int) reduced < (int) limit) {
+            logger.debug("Concurrency limit reduced to {}", (int) reduced);
+        }
+        limit = reduced;
+    }
+
+    private boolean connectionsContended() {
+        HikariPoolMXBean current = pool;
+        if (current == null) {
+            current = resolvePool();
+        }
+        return current != null && current.getThreadsAwaitingConnection() > 0;
+    }
+
+    private HikariPoolMXBean resolvePool() {
+        DataSource dataSource = dataSourceProvider.getIfAvailable();
+        if (dataSource == null) {
+            return null;
+        }
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                // The MX bean only exists once the pool has started
+                pool = dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+            }
+        } catch (SQLException e) {
+            logger.debug("Could not inspect the connection pool: {}", e.getMessage());
+        }
+        return pool;
+    }
+}
@@ -0,0 +1,54 @@
+package com.pharmacare.api.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process token buckets. Each bucket is a single {@link AtomicLong} holding the theoretical arrival
+ * time of the next request (GCRA), so acquiring a permit is one compare-and-set without locks. Buckets
+ * live in a size-bounded Caffeine map and are dropped once idle.
+ */
+@Component
+public class LocalRateLimiter {
+
+    private final Cache<String, AtomicLong> buckets;
+
+    public LocalRateLimiter(RateLimitProperties properties) {
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxBuckets())
+                .expireAfterAccess(properties.getBucketIdleTimeout())
+                .build();
+    }
+
+    /**
+     * Takes one permit from the bucket {@code key}.
+     *
+     * @return {@code 0} if the request is allowed, otherwise the nanoseconds until a permit is available
+     */
+    public long tryAcquire(String key, RateLimitProperties.Limit limit) {
+        long interval = intervalNanos(limit);
+        long tolerance = interval * Math.max(limit.getBurst(), 1);
+        AtomicLong arrival = buckets.get(key, ignored -> new AtomicLong(Long.MIN_VALUE));
+        while (true) {
+            long now = System.nanoTime();
+            long current = arrival.get();
+            long theoretical = current == Long.MIN_VALUE || current - now < 0 ? now : current;
+            long next = theoretical + interval;
+            long waitFor = next - now - tolerance;
+            if (waitFor > 0) {
+                return waitFor;
+            }
+            if (arrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    static long intervalNanos(RateLimitProperties.Limit limit) {
+        return (long) (TimeUnit.SECONDS.toNanos(1) / limit.getPermitsPerSecond());
+    }
+}
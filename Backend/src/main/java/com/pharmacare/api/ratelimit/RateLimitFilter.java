@@ -0,0 +1,329 @@
+package com.pharmacare.api.ratelimit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pharmacare.api.dto.ErrorResponseDto;
+import com.pharmacare.api.security.PharmacyMembershipCache;
+import com.pharmacare.api.security.oauth2.UserPrincipal;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Applies the per-route token buckets from {@link RateLimitProperties} and the
+ * {@link AdaptiveConcurrencyLimiter}. Runs inside the security chain after the JWT filter, so buckets are
+ * keyed by user id rather than by client IP and every till behind a pharmacy's NAT gets its own budget.
+ * Anonymous requests such as logins are keyed by the account named in the body, with a looser cap per IP.
+ * <p>
+ * A request over its rate gets 429 and one shed by the concurrency limiter gets 503, both with a
+ * {@code Retry-After} header.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    // Pharmacy-scoped routes that carry the pharmacy id in the path rather than as a parameter
+    private static final Pattern PHARMACY_PATH = Pattern.compile("^/api/(?:inventories|pharmacies)/(\\d+)(?:/|$)");
+
+    // Larger bodies are passed through unread and fall back to the per-IP bucket
+    private static final int MAX_ACCOUNT_BODY_BYTES = 8 * 1024;
+
+    // Longest email address allowed by RFC 5321
+    private static final int MAX_ACCOUNT_LENGTH = 254;
+
+    private final RateLimitProperties properties;
+    private final LocalRateLimiter localRateLimiter;
+    private final RedisRateLimiter redisRateLimiter;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final PharmacyMembershipCache membershipCache;
+    private final ObjectMapper objectMapper;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final List<NamedPolicy> policies = new ArrayList<>();
+    private final Counter shedCounter;
+
+    public RateLimitFilter(RateLimitProperties properties,
+                           LocalRateLimiter localRateLimiter,
+                           RedisRateLimiter redisRateLimiter,
+                           AdaptiveConcurrencyLimiter concurrencyLimiter,
+                           PharmacyMembershipCache membershipCache,
+                           ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.localRateLimiter = localRateLimiter;
+        this.redisRateLimiter = redisRateLimiter;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.membershipCache = membershipCache;
+        this.objectMapper = objectMapper;
+        for (Map.Entry<String, RateLimitProperties.Policy> entry : properties.getPolicies().entrySet()) {
+            validate(entry.getKey(), entry.getValue().getPerUser());
+            validate(entry.getKey(), entry.getValue().getPerAccount());
+            validate(entry.getKey(), entry.getValue().getPerIp());
+            validate(entry.getKey(), entry.getValue().getPerPharmacy());
+            policies.add(new NamedPolicy(entry.getKey(), entry.getValue(), Counter.builder("http.server.requests.throttled")
+                    .description("Requests rejected by a rate limit policy")
+                    .tag("policy", entry.getKey())
+                    .register(meterRegistry)));
+        }
+        this.shedCounter = Counter.builder("http.server.requests.shed")
+                .description("Requests rejected by the adaptive concurrency limit")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!properties.isEnabled() || "OPTIONS".equalsIgnoreCase(request.getMethod())) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return properties.getExcludePaths().stream().anyMatch(pattern -> pathMatcher.match(pattern, path));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        NamedPolicy policy = findPolicy(path);
+        if (policy != null) {
+            Long userId = currentUserId();
+            String account = null;
+            if (policy.policy().getPerAccount() != null && userId == null) {
+                CachedBodyRequest cached = cacheBody(request);
+                if (cached != null) {
+                    request = cached;
+                    account = accountOf(cached, policy.policy().getAccountFields());
+                }
+            }
+            long waitNanos = acquire(policy, request, path, userId, account);
+            if (waitNanos > 0) {
+                policy.throttled().increment();
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Rate limit {} exceeded for {} {}", policy.name(), request.getMethod(), path);
+                }
+                reject(response, HttpStatus.TOO_MANY_REQUESTS, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1),
+                        "Too many requests, please retry shortly.");
+                return;
+            }
+        }
+
+        if (!properties.getConcurrency().isEnabled()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (!concurrencyLimiter.tryAcquire()) {
+            shedCounter.increment();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, concurrencyLimiter.getRetryAfterSeconds(),
+                    "The server is busy, please retry shortly.");
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            // Event streams stay open while the client is connected without doing any work, so they give their
+            // slot back as soon as the handler returns
+            if (request.isAsyncStarted() && !isEventStream(response)) {
+                async = true;
+                // Other async and streaming responses hold their slot until they complete but do not adjust the limit
+                request.getAsyncContext().addListener(new ReleasingListener());
+            }
+        } finally {
+            if (!async) {
+                concurrencyLimiter.release(System.nanoTime() - startedAt);
+            }
+        }
+    }
+
+    private static boolean isEventStream(HttpServletResponse response) {
+        String contentType = response.getContentType();
+        return contentType != null && contentType.startsWith(MediaType.TEXT_EVENT_STREAM_VALUE);
+    }
+
+    private NamedPolicy findPolicy(String path) {
+        for (NamedPolicy policy : policies) {
+            for (String pattern : policy.policy().getPaths()) {
+                if (pathMatcher.match(pattern, path)) {
+                    return policy;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return {@code 0} if every bucket of the policy had a permit, otherwise the longest wait
+     */
+    private long acquire(NamedPolicy policy, HttpServletRequest request, String path, Long userId, String account) {
+        long waitNanos = 0;
+        RateLimitProperties.Limit perIp = policy.policy().getPerIp();
+        if (perIp != null) {
+            waitNanos = take(policy, "ip:" + request.getRemoteAddr(), perIp);
+        }
+        RateLimitProperties.Limit perUser = policy.policy().getPerUser();
+        if (perUser != null && waitNanos == 0) {
+            if (userId != null) {
+                waitNanos = take(policy, "u:" + userId, perUser);
+            } else if (perIp == null && policy.policy().getPerAccount() == null) {
+                waitNanos = take(policy, "ip:" + request.getRemoteAddr(), perUser);
+            }
+        }
+        RateLimitProperties.Limit perAccount = policy.policy().getPerAccount();
+        if (perAccount != null && account != null && waitNanos == 0) {
+            waitNanos = take(policy, "a:" + account, perAccount);
+        }
+        RateLimitProperties.Limit perPharmacy = policy.policy().getPerPharmacy();
+        if (perPharmacy != null && waitNanos == 0) {
+            Long pharmacyId = resolvePharmacyId(request, path, userId);
+            if (pharmacyId != null) {
+                waitNanos = take(policy, "p:" + pharmacyId, perPharmacy);
+            }
+        }
+        return waitNanos;
+    }
+
+    private long take(NamedPolicy policy, String key, RateLimitProperties.Limit limit) {
+        String bucket = policy.name() + ":" + key;
+        return policy.policy().isGlobal()
+                ? redisRateLimiter.tryAcquire(bucket, limit)
+                : localRateLimiter.tryAcquire(bucket, limit);
+    }
+
+    /**
+     * Reads a small JSON body into memory so it can be inspected here and still be read by the controller.
+     *
+     * @return {@code null} for bodies that are not JSON, too large or of unknown length
+     */
+    private static CachedBodyRequest cacheBody(HttpServletRequest request) throws IOException {
+        if (request instanceof CachedBodyRequest cached) {
+            return cached;
+        }
+        String contentType = request.getContentType();
+        long length = request.getContentLengthLong();
+        if (contentType == null || !contentType.startsWith(MediaType.APPLICATION_JSON_VALUE)
+                || length <= 0 || length > MAX_ACCOUNT_BODY_BYTES) {
+            return null;
+        }
+        return new CachedBodyRequest(request, request.getInputStream().readNBytes((int) length));
+    }
+
+    private String accountOf(CachedBodyRequest request, List<String> fields) {
+        JsonNode body;
+        try {
+            body = objectMapper.readTree(request.getBody());
+        } catch (IOException e) {
+            // Left for the controller to reject
+            return null;
+        }
+        if (body == null || !body.isObject()) {
+            return null;
+        }
+        for (String field : fields) {
+            JsonNode value = body.get(field);
+            if (value != null && value.isTextual()) {
+                String account = value.asText().trim().toLowerCase(Locale.ROOT);
+                if (!account.isEmpty() && account.length() <= MAX_ACCOUNT_LENGTH) {
+                    return account;
+                }
+            }
+        }
+        return null;
+    }
+
+    private Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal principal) {
+            return principal.getId();
+        }
+        return null;
+    }
+
+    /**
+     * Takes the pharmacy from a {@code pharmacyId} parameter or a pharmacy-scoped path. Otherwise, for a
+     * user who belongs to exactly one pharmacy, such as a till login, uses that pharmacy.
+     */
+    private Long resolvePharmacyId(HttpServletRequest request, String path, Long userId) {
+        String parameter = request.getParameter("pharmacyId");
+        if (parameter != null) {
+            try {
+                return Long.valueOf(parameter);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        Matcher matcher = PHARMACY_PATH.matcher(path);
+        if (matcher.find()) {
+            return Long.valueOf(matcher.group(1));
+        }
+        if (userId != null) {
+            Set<Long> pharmacyIds = membershipCache.pharmacyIdsOf(userId);
+            if (pharmacyIds.size() == 1) {
+                return pharmacyIds.iterator().next();
+            }
+        }
+        return null;
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds, String message)
+            throws IOException {
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ErrorResponseDto(status.value(), message));
+    }
+
+    private static void validate(String policyName, RateLimitProperties.Limit limit) {
+        if (limit != null && !(limit.getPermitsPerSecond() > 0)) {
+            throw new IllegalStateException("Rate limit policy " + policyName + " needs a positive permits-per-second");
+        }
+    }
+
+    private record NamedPolicy(String name, RateLimitProperties.Policy policy, Counter throttled) {
+    }
+
+    private final class ReleasingListener implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            concurrencyLimiter.release(-1);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
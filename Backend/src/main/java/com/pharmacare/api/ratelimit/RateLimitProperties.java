@@ -0,0 +1,114 @@
+package com.pharmacare.api.ratelimit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings for {@link RateLimitFilter}. Policies are matched in the order they are declared and the first
+ * policy with a matching path applies; requests that match no policy are only subject to the concurrency
+ * limit.
+ */
+@Data
+@ConfigurationProperties(prefix = "pharmacare.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Paths that are neither rate limited nor counted by the concurrency limiter.
+     */
+    private List<String> excludePaths = new ArrayList<>(List.of("/actuator/**"));
+
+    /**
+     * Local buckets untouched for this long are dropped. An idle bucket is full again long before this.
+     */
+    private Duration bucketIdleTimeout = Duration.ofMinutes(10);
+
+    private long maxBuckets = 100_000;
+
+    private Map<String, Policy> policies = new LinkedHashMap<>();
+
+    private Concurrency concurrency = new Concurrency();
+
+    @Data
+    public static class Policy {
+
+        private List<String> paths = new ArrayList<>();
+
+        /**
+         * Bucket per authenticated user. Anonymous requests use a bucket per client IP instead, unless the
+         * policy sets {@link #perAccount} or {@link #perIp}.
+         */
+        private Limit perUser;
+
+        /**
+         * Bucket per account named in the JSON body of an anonymous request, such as the email of a login.
+         * Failed guesses against one account are limited without throttling everyone else on the same IP.
+         */
+        private Limit perAccount;
+
+        /**
+         * Body fields that name the account for {@link #perAccount}; the first one present is used.
+         */
+        private List<String> accountFields = new ArrayList<>(List.of("email"));
+
+        /**
+         * Bucket per client IP, taken by every request of the policy. Keep it loose: all the tills of a
+         * pharmacy usually share one address behind NAT.
+         */
+        private Limit perIp;
+
+        /**
+         * Bucket per pharmacy, shared by every user and till of that pharmacy.
+         */
+        private Limit perPharmacy;
+
+        /**
+         * Keep the buckets of this policy in Redis so the limit holds across all nodes. Falls back to the
+         * local buckets when Redis cannot be reached.
+         */
+        private boolean global;
+    }
+
+    @Data
+    public static class Limit {
+
+        private double permitsPerSecond;
+
+        /**
+         * Requests that may be made at once after a quiet period.
+         */
+        private int burst = 1;
+    }
+
+    @Data
+    public static class Concurrency {
+
+        private boolean enabled = true;
+
+        private int initialLimit = 50;
+
+        private int minLimit = 10;
+
+        private int maxLimit = 200;
+
+        /**
+         * Requests slower than this count as a sign of congestion and shrink the limit. The limit shrinks at
+         * most once per this interval, since requests that finish within it started under the old limit.
+         */
+        private Duration latencyThreshold = Duration.ofSeconds(2);
+
+        /**
+         * Factor applied to the limit on congestion, at most once per latency threshold.
+         */
+        private double backoffRatio = 0.9;
+
+        private long retryAfterSeconds = 1;
+    }
+}
@@ -0,0 +1,65 @@
+package com.pharmacare.api.ratelimit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token buckets shared by all nodes. The same GCRA step as {@link LocalRateLimiter} runs as a Lua script
+ * so the read and update are atomic, and it uses the Redis clock so nodes with skewed clocks agree.
+ * <p>
+ * When Redis cannot be reached the request is checked against the local bucket instead, which keeps the
+ * limit per node rather than turning the outage into failed requests.
+ */
+@Component
+public class RedisRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisRateLimiter.class);
+
+    private static final String KEY_PREFIX = "ratelimit:";
+
+    // Times are in microseconds. Returns 0 when allowed, otherwise the microseconds to wait.
+    private static final RedisScript<Long> GCRA_SCRIPT = new DefaultRedisScript<>("""
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000000 + tonumber(time[2])
+            local interval = tonumber(ARGV[1])
+            local tolerance = tonumber(ARGV[2])
+            local theoretical = tonumber(redis.call('GET', KEYS[1]) or now)
+            if theoretical < now then theoretical = now end
+            local nextArrival = theoretical + interval
+            local waitFor = nextArrival - now - tolerance
+            if waitFor > 0 then return waitFor end
+            redis.call('SET', KEYS[1], nextArrival, 'PX', math.ceil((nextArrival - now) / 1000))
+            return 0
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final LocalRateLimiter localRateLimiter;
+
+    public RedisRateLimiter(StringRedisTemplate redisTemplate, LocalRateLimiter localRateLimiter) {
+        this.redisTemplate = redisTemplate;
+        this.localRateLimiter = localRateLimiter;
+    }
+
+    /**
+     * @return {@code 0} if the request is allowed, otherwise the nanoseconds until a permit is available
+     */
+    public long tryAcquire(String key, RateLimitProperties.Limit limit) {
+        long interval = TimeUnit.NANOSECONDS.toMicros(LocalRateLimiter.intervalNanos(limit));
+        long tolerance = interval * Math.max(limit.getBurst(), 1);
+        try {
+            Long waitFor = redisTemplate.execute(GCRA_SCRIPT, List.of(KEY_PREFIX + key),
+                    String.valueOf(interval), String.valueOf(tolerance));
+            return waitFor == null ? 0 : TimeUnit.MICROSECONDS.toNanos(waitFor);
+        } catch (RuntimeException e) {
+            logger.debug("Global rate limit unavailable for {}, using the local bucket: {}", key, e.getMessage());
+            return localRateLimiter.tryAcquire(key, limit);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.pharmacare.api.reminder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stand-in notifier that only logs, for development and for deployments without a mail server.
+ */
+public class LoggingReminderNotifier implements ReminderNotifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoggingReminderNotifier.class);
+
+    @Override
+    public void send(ReminderNotification notification) {
+        logger.info("Reminder {} due at {} for user {}: take {} {}", notification.reminderId(),
+                notification.reminderTime(), notification.userId(), notification.medicationName(),
+                notification.dosage() != null ? notification.dosage() : "");
+    }
+}
@@ -0,0 +1,46 @@
+package com.pharmacare.api.reminder;
+
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Emails the reminder to the user's address. Needs {@code spring.mail.*} to be configured.
+ */
+public class MailReminderNotifier implements ReminderNotifier {
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+
+    private final JavaMailSender mailSender;
+    private final String from;
+
+    public MailReminderNotifier(JavaMailSender mailSender, String from) {
+        this.mailSender = mailSender;
+        this.from = from;
+    }
+
+    @Override
+    public void send(ReminderNotification notification) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(from);
+        message.setTo(notification.email());
+        message.setSubject("Time to take " + notification.medicationName());
+
+        StringBuilder text = new StringBuilder()
+                .append("Hi ").append(notification.firstName()).append(",\n\n")
+                .append("This is your ").append(TIME_FORMAT.format(notification.reminderTime()))
+                .append(" reminder to take ").append(notification.medicationName());
+        if (notification.dosage() != null && !notification.dosage().isBlank()) {
+            text.append(" (").append(notification.dosage()).append(')');
+        }
+        text.append(".\n");
+        if (notification.notes() != null && !notification.notes().isBlank()) {
+            text.append('\n').append(notification.notes()).append('\n');
+        }
+        text.append("\nPharmaCare+");
+        message.setText(text.toString());
+
+        mailSender.send(message);
+    }
+}
@@ -0,0 +1,82 @@
+package com.pharmacare.api.reminder;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for {@link ReminderDispatcher}.
+ */
+@Data
+@ConfigurationProperties(prefix = "reminders.dispatch")
+public class ReminderDispatchProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Number of shards reminders are split into by user id. Every node must use the same value; each node
+     * dispatches the shards it holds a lease on.
+     */
+    private int shards = 64;
+
+    /**
+     * A node that has not renewed its leases for this long loses its shards to the other nodes.
+     */
+    private Duration leaseTtl = Duration.ofSeconds(30);
+
+    /**
+     * How often leases are renewed and shards rebalanced. Must be well below {@link #leaseTtl}.
+     */
+    private Duration heartbeatInterval = Duration.ofSeconds(10);
+
+    /**
+     * {@code log} writes notifications to the application log, {@code mail} sends them by email.
+     */
+    private String notifier = "log";
+
+    /**
+     * Resolution of the timing wheel; reminders fire within one tick of their time.
+     */
+    private Duration tick = Duration.ofSeconds(1);
+
+    /**
+     * How far ahead reminders are loaded into memory. Must exceed {@link #loadInterval}.
+     */
+    private Duration lookahead = Duration.ofMinutes(10);
+
+    private Duration loadInterval = Duration.ofMinutes(1);
+
+    /**
+     * How often reminders created or moved behind the load position are picked up.
+     */
+    private Duration sweepInterval = Duration.ofMinutes(2);
+
+    /**
+     * Reminders overdue by more than this, for example after a long outage, are not sent any more.
+     */
+    private Duration grace = Duration.ofHours(6);
+
+    /**
+     * Maximum number of reminders held in memory. Loading pauses when it is reached.
+     */
+    private int capacity = 200_000;
+
+    private int batchSize = 500;
+
+    /**
+     * How long a claimed reminder is reserved for the claiming node to deliver it. Must exceed the time
+     * the notifier takes for a whole batch; a claim still open after this is taken to be from a node that
+     * died, and the reminder is sent again.
+     */
+    private Duration claimTimeout = Duration.ofMinutes(5);
+
+    private int workers = 4;
+
+    /**
+     * Batches of due reminders that may wait for a worker before further ones are left to the next sweep.
+     */
+    private int queueCapacity = 100;
+
+    private String mailFrom = "noreply@pharmacare.app";
+}
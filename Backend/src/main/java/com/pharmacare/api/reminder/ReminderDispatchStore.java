@@ -0,0 +1,142 @@
+package com.pharmacare.api.reminder;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reads and claims reminders for {@link ReminderDispatcher} with plain JDBC. A reminder is claimed by
+ * setting {@code claimed_until} only where it is not yet notified, not under an unexpired claim, and only
+ * while the claiming node holds the lease on the reminder's shard, so however many times an id reaches
+ * {@link #claim}, on however many nodes, only one claim holds at a time. {@code notified_at} is set by
+ * {@link #markSent} once the notifier succeeded; a claim whose node died before that lapses and the
+ * reminder is claimed again.
+ * <p>
+ * The shard expression {@code mod(user_id, shards)} is written into the SQL as a literal so that it
+ * matches the expression index {@code idx_reminders_dispatch_<shards>}.
+ */
+@Component
+public class ReminderDispatchStore {
+
+    private static final RowMapper<ScheduledReminder> SCHEDULED_MAPPER = (rs, rowNum) ->
+            new ScheduledReminder(rs.getLong("id"), rs.getLong("user_id"), rs.getTimestamp("reminder_time").toLocalDateTime());
+
+    private static final RowMapper<ReminderNotification> NOTIFICATION_MAPPER = (rs, rowNum) ->
+            new ReminderNotification(
+                    rs.getLong("id"),
+                    rs.getLong("user_id"),
+                    rs.getString("email"),
+                    rs.getString("first_name"),
+                    rs.getString("name"),
+                    rs.getString("dosage"),
+                    rs.getTimestamp("reminder_time").toLocalDateTime(),
+                    rs.getString("notes"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int shards;
+    private final String shardExpression;
+
+    public ReminderDispatchStore(JdbcTemplate jdbcTemplate, ReminderDispatchProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = properties.getShards();
+        this.shardExpression = shardExpression("user_id", shards);
+    }
+
+    /**
+     * SQL for the shard of a reminder row, with {@code column} holding the user id.
+     */
+    public static String shardExpression(String column, int shards) {
+        return "mod(" + column + ", " + shards + ")";
+    }
+
+    /**
+     * Pending reminders of {@code shard} after the keyset position {@code (afterTime, afterId)} and before
+     * {@code until}, in time order.
+     */
+    public List<ScheduledReminder> findUpcoming(int shard, LocalDateTime afterTime, long afterId,
+                                                LocalDateTime until, int limit) {
+        return jdbcTemplate.query(
+                "SELECT id, user_id, reminder_time FROM reminders " +
+                "WHERE " + shardExpression + " = ? AND notified_at IS NULL AND completed = false " +
+                "AND (reminder_time, id) > (?, ?) AND reminder_time < ? " +
+                "ORDER BY reminder_time, id LIMIT ?",
+                SCHEDULED_MAPPER, shard, Timestamp.valueOf(afterTime), afterId, Timestamp.valueOf(until), limit);
+    }
+
+    /**
+     * Pending reminders of the given shards with a time in {@code [from, to]}, used to find reminders that
+     * were created or moved behind the load position.
+     */
+    public List<ScheduledReminder> findPendingBetween(Collection<Integer> shards, LocalDateTime from,
+                                                      LocalDateTime to, int limit) {
+        return jdbcTemplate.query(
+                "SELECT id, user_id, reminder_time FROM reminders " +
+                "WHERE " + shardExpression + " = ANY (?) AND notified_at IS NULL AND completed = false " +
+                "AND reminder_time BETWEEN ? AND ? " +
+                "ORDER BY reminder_time, id LIMIT ?",
+                ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("integer", shards.toArray()));
+                    ps.setTimestamp(2, Timestamp.valueOf(from));
+                    ps.setTimestamp(3, Timestamp.valueOf(to));
+                    ps.setInt(4, limit);
+                },
+                SCHEDULED_MAPPER);
+    }
+
+    /**
+     * Claims the given reminders until {@code claimedUntil} where they are still pending, not claimed by
+     * anyone else, due by {@code dueBy}, and in a shard leased to {@code nodeId}, and returns the ones this
+     * call claimed. A reminder that was completed, sent, under another claim, moved later or whose shard
+     * moved to another node is skipped.
+     */
+    public List<ReminderNotification> claim(Collection<Long> ids, LocalDateTime now, LocalDateTime dueBy,
+                                            LocalDateTime claimedUntil, String nodeId) {
+        return jdbcTemplate.query(
+                "UPDATE reminders r SET claimed_until = ? " +
+                "FROM medications m, users u, reminder_shard_leases l " +
+                "WHERE r.id = ANY (?) AND r.notified_at IS NULL AND r.completed = false AND r.reminder_time <= ? " +
+                "AND (r.claimed_until IS NULL OR r.claimed_until < ?) " +
+                "AND m.id = r.medication_id AND u.id = r.user_id " +
+                "AND l.shard = " + shardExpression("r.user_id", shards) + " " +
+                "AND l.owner = ? AND l.lease_until > now() " +
+                "RETURNING r.id, r.user_id, r.reminder_time, r.notes, m.name, m.dosage, u.email, u.first_name",
+                ps -> {
+                    Connection connection = ps.getConnection();
+                    Array idArray = connection.createArrayOf("bigint", ids.toArray());
+                    ps.setTimestamp(1, Timestamp.valueOf(claimedUntil));
+                    ps.setArray(2, idArray);
+                    ps.setTimestamp(3, Timestamp.valueOf(dueBy));
+                    ps.setTimestamp(4, Timestamp.valueOf(now));
+                    ps.setString(5, nodeId);
+                },
+                NOTIFICATION_MAPPER);
+    }
+
+    /**
+     * Records the delivery of claimed reminders, which ends their claims for good.
+     */
+    public void markSent(Collection<Long> ids, LocalDateTime sentAt) {
+        jdbcTemplate.update("UPDATE reminders SET notified_at = ?, claimed_until = NULL WHERE id = ANY (?)",
+                ps -> {
+                    ps.setTimestamp(1, Timestamp.valueOf(sentAt));
+                    ps.setArray(2, ps.getConnection().createArrayOf("bigint", ids.toArray()));
+                });
+    }
+
+    /**
+     * Drops the claim on a reminder after its delivery failed, so the next sweep retries it.
+     */
+    public void release(long id) {
+        jdbcTemplate.update("UPDATE reminders SET claimed_until = NULL WHERE id = ?", id);
+    }
+
+    public record ScheduledReminder(long id, long userId, LocalDateTime reminderTime) {
+    }
+}
@@ -0,0 +1,355 @@
+package com.pharmacare.api.reminder;
+
+import com.pharmacare.api.reminder.ReminderDispatchStore.ScheduledReminder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fires reminders at their {@code reminderTime}. Pending reminders of the shards this node leases from
+ * {@link ShardLeaseManager} are loaded a window at a time into a {@link TimingWheel}, and due ones are
+ * claimed and handed to the {@link ReminderNotifier} in batches on a small worker pool. Sent reminders are
+ * also pushed to the user's open streams through the {@link ReminderEventHub}.
+ * <p>
+ * Only the state needed to fire (id and time) is held in memory, up to
+ * {@code reminders.dispatch.capacity} entries; beyond that loading pauses until the wheel drains. Loading
+ * walks {@code (reminder_time, id)} with a keyset per shard, starting {@code grace} in the past when a
+ * shard is acquired, so reminders that fell due while no node held it are sent then. Reminders that end
+ * up behind the load position are found by a periodic sweep or passed in directly through
+ * {@link #schedule}.
+ * <p>
+ * Delivery is at least once: the claim in {@link ReminderDispatchStore#claim} is conditional and fenced by
+ * the shard lease, so duplicates in memory, including entries left over from a shard that moved to another
+ * node, are harmless, and a reminder only counts as sent once the notifier returned. A failed send
+ * releases the claim for the next sweep. If a node dies between claim and send, the claim lapses after
+ * {@code reminders.dispatch.claim-timeout} and the sweep of whichever node holds the shard then sends it;
+ * a node dying after the send but before recording it sends that batch twice.
+ * <p>
+ * Work is split over three threads so that slow queries cannot delay firing or lease renewal: the lease
+ * thread renews leases, the loader thread runs the load and sweep queries and queues what it finds, and
+ * the dispatch thread moves queued reminders into the wheel and advances it every tick. The wheel is only
+ * touched from the dispatch thread, the keyset positions are only written by the loader.
+ */
+@Component
+public class ReminderDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReminderDispatcher.class);
+
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_LEVELS = 3;
+
+    private final ReminderDispatchStore store;
+    private final ShardLeaseManager leaseManager;
+    private final ReminderNotifier notifier;
+    private final ReminderEventHub eventHub;
+    private final ReminderDispatchProperties properties;
+    private final Counter dispatchedCounter;
+    private final Counter failedCounter;
+    private final Counter deferredCounter;
+
+    private final Queue<ScheduledReminder> incoming = new ConcurrentLinkedQueue<>();
+    private final Set<Long> scheduled = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, LoadPosition> loadPositions = new ConcurrentHashMap<>();
+    private final AtomicInteger scheduledCount = new AtomicInteger();
+    private final AtomicInteger ownedShardCount = new AtomicInteger();
+
+    private ScheduledExecutorService dispatchThread;
+    private ScheduledExecutorService loaderThread;
+    private ScheduledExecutorService leaseThread;
+    private ThreadPoolExecutor workers;
+    private TimingWheel<Long> wheel;
+    private volatile Set<Integer> ownedShards = Set.of();
+
+    public ReminderDispatcher(ReminderDispatchStore store,
+                              ShardLeaseManager leaseManager,
+                              ReminderNotifier notifier,
+                              ReminderEventHub eventHub,
+                              ReminderDispatchProperties properties,
+                              MeterRegistry meterRegistry) {
+        this.store = store;
+        this.leaseManager = leaseManager;
+        this.notifier = notifier;
+        this.eventHub = eventHub;
+        this.properties = properties;
+        this.dispatchedCounter = Counter.builder("reminders.dispatched")
+                .description("Reminders handed to the notifier")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("reminders.dispatch.failed")
+                .description("Reminders whose delivery failed and were released for retry")
+                .register(meterRegistry);
+        this.deferredCounter = Counter.builder("reminders.dispatch.deferred")
+                .description("Due reminders left to the next sweep because the workers were saturated")
+                .register(meterRegistry);
+        Gauge.builder("reminders.scheduled", scheduledCount, AtomicInteger::get)
+                .description("Reminders held in the timing wheel")
+                .register(meterRegistry);
+        Gauge.builder("reminders.shards.owned", ownedShardCount, AtomicInteger::get)
+                .description("Reminder shards leased to this node")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            logger.info("Reminder dispatch is disabled");
+            return;
+        }
+        long tickMs = properties.getTick().toMillis();
+        wheel = new TimingWheel<>(tickMs, WHEEL_SIZE, WHEEL_LEVELS, System.currentTimeMillis());
+        if (properties.getLookahead().toMillis() > wheel.horizonMs()) {
+            throw new IllegalStateException("reminders.dispatch.lookahead exceeds what the timing wheel can hold ("
+                    + wheel.horizonMs() + " ms at this tick)");
+        }
+        if (properties.getHeartbeatInterval().compareTo(properties.getLeaseTtl()) >= 0) {
+            throw new IllegalStateException("reminders.dispatch.heartbeat-interval must be shorter than lease-ttl");
+        }
+
+        AtomicInteger workerCount = new AtomicInteger();
+        workers = new ThreadPoolExecutor(properties.getWorkers(), properties.getWorkers(), 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "reminder-worker-" + workerCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        dispatchThread = singleThread("reminder-dispatch");
+        loaderThread = singleThread("reminder-loader");
+        leaseThread = singleThread("reminder-lease");
+        leaseThread.scheduleWithFixedDelay(guarded(this::heartbeat), 0,
+                properties.getHeartbeatInterval().toMillis(), TimeUnit.MILLISECONDS);
+        loaderThread.scheduleWithFixedDelay(guarded(this::load), 0,
+                properties.getLoadInterval().toMillis(), TimeUnit.MILLISECONDS);
+        loaderThread.scheduleWithFixedDelay(guarded(this::sweep), properties.getSweepInterval().toMillis(),
+                properties.getSweepInterval().toMillis(), TimeUnit.MILLISECONDS);
+        dispatchThread.scheduleAtFixedRate(guarded(this::tick), tickMs, tickMs, TimeUnit.MILLISECONDS);
+        logger.info("Reminder dispatch started on node {} with a {} tick and {} lookahead",
+                leaseManager.getNodeId(), properties.getTick(), properties.getLookahead());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (dispatchThread != null) {
+            leaseThread.shutdownNow();
+            loaderThread.shutdownNow();
+            dispatchThread.shutdownNow();
+            workers.shutdown();
+            try {
+                leaseThread.awaitTermination(5, TimeUnit.SECONDS);
+                leaseManager.releaseAll();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                logger.warn("Could not release reminder shard leases, they expire after {}", properties.getLeaseTtl());
+            }
+        }
+    }
+
+    /**
+     * Makes a reminder that was just created or moved known without waiting for the next sweep. Safe to
+     * call for any reminder; ones in shards of other nodes, or that the loader will still reach, are
+     * ignored. Other nodes find reminders of their shards through their sweep.
+     */
+    public void schedule(Long reminderId, Long userId, LocalDateTime reminderTime) {
+        if (dispatchThread == null || reminderId == null || userId == null || reminderTime == null
+                || !ownedShards.contains(ShardLeaseManager.shardOf(userId, leaseManager.getShardCount()))) {
+            return;
+        }
+        // Anything after the load position is picked up by the loader in order. Should the loader move past
+        // the reminder before it is committed, the sweep still finds it before it is due.
+        LoadPosition position = loadPositions.get(ShardLeaseManager.shardOf(userId, leaseManager.getShardCount()));
+        if (position != null && !reminderTime.isAfter(position.time())) {
+            enqueue(new ScheduledReminder(reminderId, userId, reminderTime));
+        }
+    }
+
+    private void heartbeat() {
+        Set<Integer> shards = leaseManager.heartbeat();
+        boolean acquired = !ownedShards.containsAll(shards);
+        ownedShards = shards;
+        ownedShardCount.set(shards.size());
+        if (acquired) {
+            loaderThread.execute(guarded(this::load));
+        }
+    }
+
+    /**
+     * Follows the leased shards: positions of lost shards are dropped, acquired shards start {@code grace}
+     * in the past. Called by the loader before each run.
+     */
+    private void syncLoadPositions() {
+        Set<Integer> shards = ownedShards;
+        loadPositions.keySet().retainAll(shards);
+        LocalDateTime start = LocalDateTime.now().minus(properties.getGrace());
+        for (Integer shard : shards) {
+            loadPositions.putIfAbsent(shard, new LoadPosition(start, 0));
+        }
+    }
+
+    private void enqueue(ScheduledReminder reminder) {
+        scheduled.add(reminder.id());
+        incoming.add(reminder);
+    }
+
+    private void tick() {
+        List<Long> due = new ArrayList<>();
+        ScheduledReminder reminder;
+        while ((reminder = incoming.poll()) != null) {
+            add(reminder, due);
+        }
+        wheel.advance(System.currentTimeMillis(), due::add);
+        due.forEach(scheduled::remove);
+        scheduledCount.set(wheel.size());
+        submitAll(due);
+    }
+
+    private void load() {
+        syncLoadPositions();
+        LocalDateTime until = LocalDateTime.now().plus(properties.getLookahead());
+        for (Map.Entry<Integer, LoadPosition> entry : loadPositions.entrySet()) {
+            LoadPosition position = entry.getValue();
+            while (scheduled.size() < properties.getCapacity()) {
+                int limit = Math.min(properties.getBatchSize(), properties.getCapacity() - scheduled.size());
+                List<ScheduledReminder> page = store.findUpcoming(entry.getKey(), position.time(), position.id(), until, limit);
+                page.forEach(this::enqueue);
+                if (!page.isEmpty()) {
+                    ScheduledReminder last = page.get(page.size() - 1);
+                    position = new LoadPosition(last.reminderTime(), last.id());
+                    entry.setValue(position);
+                }
+                if (page.size() < limit) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Picks up reminders of this node's shards that the loader will not reach: ones created or moved
+     * behind the load position, including by requests served on other nodes, and ones whose delivery
+     * failed. Looks one sweep interval ahead so that such reminders still fire on time.
+     */
+    private void sweep() {
+        syncLoadPositions();
+        LocalDateTime now = LocalDateTime.now();
+        int limit = properties.getCapacity() - scheduled.size();
+        if (limit <= 0 || loadPositions.isEmpty()) {
+            return;
+        }
+        List<ScheduledReminder> pending = store.findPendingBetween(Set.copyOf(loadPositions.keySet()),
+                now.minus(properties.getGrace()), now.plus(properties.getSweepInterval()), limit);
+        for (ScheduledReminder reminder : pending) {
+            if (!scheduled.contains(reminder.id())) {
+                enqueue(reminder);
+            }
+        }
+    }
+
+    /**
+     * Adds a reminder to the wheel, or to {@code due} if its time has passed. A reminder passed in again
+     * after an edit gets a second entry; whichever fires second finds it already claimed or not yet due.
+     */
+    private void add(ScheduledReminder reminder, List<Long> due) {
+        long deadline = reminder.reminderTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        if (!wheel.add(deadline, reminder.id())) {
+            due.add(reminder.id());
+        }
+    }
+
+    private void submitAll(List<Long> due) {
+        for (int from = 0; from < due.size(); from += properties.getBatchSize()) {
+            submit(new ArrayList<>(due.subList(from, Math.min(due.size(), from + properties.getBatchSize()))));
+        }
+    }
+
+    private void submit(List<Long> batch) {
+        try {
+            workers.execute(() -> dispatch(batch));
+        } catch (RejectedExecutionException e) {
+            // Still unclaimed, so the next sweep retries them
+            deferredCounter.increment(batch.size());
+            logger.warn("Reminder workers saturated, deferring {} reminders", batch.size());
+        }
+    }
+
+    private void dispatch(List<Long> batch) {
+        LocalDateTime now = LocalDateTime.now();
+        List<ReminderNotification> claimed;
+        try {
+            claimed = store.claim(batch, now, now.plus(properties.getTick()), now.plus(properties.getClaimTimeout()),
+                    leaseManager.getNodeId());
+        } catch (RuntimeException e) {
+            logger.error("Could not claim {} due reminders", batch.size(), e);
+            return;
+        }
+        List<Long> sent = new ArrayList<>(claimed.size());
+        for (ReminderNotification notification : claimed) {
+            try {
+                notifier.send(notification);
+                sent.add(notification.reminderId());
+                dispatchedCounter.increment();
+                eventHub.publish(ReminderEvent.due(notification));
+            } catch (RuntimeException e) {
+                failedCounter.increment();
+                logger.warn("Delivery of reminder {} failed: {}", notification.reminderId(), e.getMessage());
+                try {
+                    store.release(notification.reminderId());
+                } catch (RuntimeException releaseError) {
+                    logger.error("Could not release reminder {}", notification.reminderId(), releaseError);
+                }
+            }
+        }
+        if (!sent.isEmpty()) {
+            try {
+                store.markSent(sent, LocalDateTime.now());
+            } catch (RuntimeException e) {
+                // The claims lapse and these reminders are sent a second time
+                logger.error("Could not record delivery of {} reminders", sent.size(), e);
+            }
+        }
+    }
+
+    private record LoadPosition(LocalDateTime time, long id) {
+    }
+
+    private static ScheduledExecutorService singleThread(String name) {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static Runnable guarded(Runnable task) {
+        // An exception would cancel the periodic task for good
+        return () -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.error("Reminder dispatch task failed", e);
+            }
+        };
+    }
+}
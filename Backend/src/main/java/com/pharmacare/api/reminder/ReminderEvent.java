@@ -0,0 +1,31 @@
+package com.pharmacare.api.reminder;
+
+import java.time.LocalDateTime;
+
+/**
+ * A change to one of a user's reminders, pushed to the user's open streams.
+ *
+ * @param type {@link #DUE} when the reminder fired, {@link #COMPLETED} when it was marked taken or reopened
+ */
+public record ReminderEvent(String type,
+                            Long userId,
+                            Long reminderId,
+                            String medicationName,
+                            String dosage,
+                            LocalDateTime reminderTime,
+                            boolean completed,
+                            LocalDateTime completedAt) {
+
+    public static final String DUE = "due";
+    public static final String COMPLETED = "completed";
+
+    public static ReminderEvent due(ReminderNotification notification) {
+        return new ReminderEvent(DUE, notification.userId(), notification.reminderId(),
+                notification.medicationName(), notification.dosage(), notification.reminderTime(), false, null);
+    }
+
+    public static ReminderEvent completed(Long userId, Long reminderId, LocalDateTime reminderTime,
+                                          boolean completed, LocalDateTime completedAt) {
+        return new ReminderEvent(COMPLETED, userId, reminderId, null, null, reminderTime, completed, completedAt);
+    }
+}
@@ -0,0 +1,335 @@
+package com.pharmacare.api.reminder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans {@link ReminderEvent}s out to the users' open server-sent event streams.
+ * <p>
+ * Streams are async requests, so an idle connection holds no thread, only its {@link SseEmitter} and a
+ * bounded queue of pending events. Events are written by a small shared sender pool, at most one task per
+ * connection at a time so each stream stays in order; a client that stops reading fills its queue and is
+ * disconnected rather than holding a sender. A keep-alive comment goes to every connection on a fixed
+ * interval, which also detects connections the client dropped silently.
+ * <p>
+ * A user may hold {@code reminders.stream.max-connections-per-user} streams on a node; opening another one
+ * closes that user's oldest, so one account cannot take the node's stream capacity from everyone else.
+ * <p>
+ * {@link #publishAll} relays the events over Redis pub/sub as one message, and every node, including the
+ * publishing one, delivers them to its own connections of their users. Messages are sent by a single relay
+ * thread with a bounded queue, so callers never wait for Redis. If Redis is unavailable or the queue is
+ * full the events only reach clients on this node; clients refetch on reconnect, so nothing is lost for
+ * good.
+ */
+@Component
+public class ReminderEventHub {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReminderEventHub.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ObjectMapper objectMapper;
+    private final ReminderStreamProperties properties;
+    private final Counter overflowCounter;
+
+    private final ConcurrentMap<Long, Set<Connection>> connections = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final AtomicLong connectionSequence = new AtomicLong();
+
+    private ExecutorService senders;
+    private ScheduledExecutorService heartbeat;
+    private ThreadPoolExecutor relay;
+
+    public ReminderEventHub(StringRedisTemplate redisTemplate,
+                            RedisMessageListenerContainer listenerContainer,
+                            ObjectMapper objectMapper,
+                            ReminderStreamProperties properties,
+                            MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.overflowCounter = Counter.builder("reminders.stream.overflows")
+                .description("Streams disconnected because the client fell behind")
+                .register(meterRegistry);
+        Gauge.builder("reminders.stream.connections", connectionCount, AtomicInteger::get)
+                .description("Open reminder streams on this node")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger senderCount = new AtomicInteger();
+        senders = Executors.newFixedThreadPool(properties.getSenderThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "reminder-stream-" + senderCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        relay = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.getRelayQueueSize()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "reminder-stream-relay");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reminder-stream-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMs = properties.getHeartbeatInterval().toMillis();
+        heartbeat.scheduleAtFixedRate(this::sendHeartbeat, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        listenerContainer.addMessageListener(
+                (message, pattern) -> onMessage(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(properties.getChannel()));
+    }
+
+    @PreDestroy
+    public void stop() {
+        heartbeat.shutdownNow();
+        relay.shutdown();
+        connections.values().forEach(userConnections -> userConnections.forEach(Connection::complete));
+        senders.shutdown();
+    }
+
+    /**
+     * Opens a stream for the user.
+     *
+     * @return the emitter to return from the handler, or {@code null} if this node is at
+     *         {@code reminders.stream.max-connections}
+     */
+    public SseEmitter subscribe(Long userId) {
+        if (connectionCount.incrementAndGet() > properties.getMaxConnections()) {
+            connectionCount.decrementAndGet();
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(properties.getTimeout().toMillis());
+        Connection connection = new Connection(userId, emitter, connectionSequence.incrementAndGet());
+        List<Connection> evicted = new ArrayList<>();
+        connections.compute(userId, (id, userConnections) -> {
+            Set<Connection> target = userConnections != null ? userConnections : ConcurrentHashMap.newKeySet();
+            target.add(connection);
+            target.stream()
+                    .sorted(Comparator.comparingLong(Connection::sequence))
+                    .limit(Math.max(0, target.size() - properties.getMaxConnectionsPerUser()))
+                    .forEach(evicted::add);
+            return target;
+        });
+        // Closing updates the map, which must not happen inside compute for the same key
+        evicted.forEach(Connection::complete);
+        emitter.onCompletion(connection::close);
+        emitter.onTimeout(() -> {
+            connection.close();
+            emitter.complete();
+        });
+        emitter.onError(error -> connection.close());
+        connection.offer(SseEmitter.event()
+                .name("ready")
+                .reconnectTime(properties.getReconnectDelay().toMillis())
+                .data("{}")
+                .build());
+        return emitter;
+    }
+
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    /**
+     * Sends the event to the user's streams on every node. Never throws.
+     */
+    public void publish(ReminderEvent event) {
+        publishAll(List.of(event));
+    }
+
+    /**
+     * Sends the events to their users' streams on every node, relayed as a single message. Returns without
+     * waiting for Redis and never throws.
+     */
+    public void publishAll(List<ReminderEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        JsonNode tree;
+        try {
+            tree = objectMapper.valueToTree(events);
+        } catch (IllegalArgumentException e) {
+            logger.error("Could not serialize {} reminder events", events.size(), e);
+            return;
+        }
+        try {
+            relay.execute(() -> relay(tree));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Reminder event relay queue is full, delivering {} events on this node only", events.size());
+            deliverAll(tree);
+        }
+    }
+
+    private void relay(JsonNode tree) {
+        try {
+            redisTemplate.convertAndSend(properties.getChannel(), tree.toString());
+        } catch (RuntimeException e) {
+            logger.warn("Could not relay reminder events, delivering on this node only: {}", e.getMessage());
+            deliverAll(tree);
+        }
+    }
+
+    private void onMessage(String json) {
+        try {
+            deliverAll(objectMapper.readTree(json));
+        } catch (IOException e) {
+            logger.warn("Ignoring malformed reminder events: {}", e.getMessage());
+        }
+    }
+
+    private void deliverAll(JsonNode tree) {
+        for (JsonNode node : tree) {
+            try {
+                deliver(objectMapper.treeToValue(node, ReminderEvent.class), node.toString());
+            } catch (JsonProcessingException e) {
+                logger.warn("Ignoring malformed reminder event: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void deliver(ReminderEvent event, String json) {
+        Set<Connection> userConnections = connections.get(event.userId());
+        if (userConnections == null || userConnections.isEmpty()) {
+            return;
+        }
+        // Built once and shared, the connections only read it
+        Set<DataWithMediaType> data = SseEmitter.event().name(event.type()).data(json).build();
+        userConnections.forEach(connection -> connection.offer(data));
+    }
+
+    private void sendHeartbeat() {
+        try {
+            Set<DataWithMediaType> data = SseEmitter.event().comment("keep-alive").build();
+            connections.values().forEach(userConnections -> userConnections.forEach(c -> c.offer(data)));
+        } catch (RuntimeException e) {
+            // An exception would cancel the periodic task for good
+            logger.error("Reminder stream heartbeat failed", e);
+        }
+    }
+
+    private final class Connection {
+
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final long sequence;
+        private final BlockingQueue<Set<DataWithMediaType>> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Connection(Long userId, SseEmitter emitter, long sequence) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.sequence = sequence;
+            this.buffer = new ArrayBlockingQueue<>(properties.getBufferSize());
+        }
+
+        long sequence() {
+            return sequence;
+        }
+
+        void offer(Set<DataWithMediaType> event) {
+            if (closed.get()) {
+                return;
+            }
+            if (!buffer.offer(event)) {
+                overflowCounter.increment();
+                logger.debug("Reminder stream of user {} fell behind, disconnecting", userId);
+                complete();
+                return;
+            }
+            scheduleDrain();
+        }
+
+        /**
+         * Ends the stream. Runs on a sender since completing waits for a write in progress.
+         */
+        void complete() {
+            close();
+            try {
+                senders.execute(emitter::complete);
+            } catch (RejectedExecutionException e) {
+                // Shutting down, the container closes the connection
+            }
+        }
+
+        void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            connections.computeIfPresent(userId, (id, userConnections) -> {
+                userConnections.remove(this);
+                return userConnections.isEmpty() ? null : userConnections;
+            });
+            connectionCount.decrementAndGet();
+            buffer.clear();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                Set<DataWithMediaType> event;
+                while (!closed.get() && (event = buffer.poll()) != null) {
+                    emitter.send(event);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client disconnected or the emitter already completed; the container cleans up the request
+                close();
+            } finally {
+                draining.set(false);
+            }
+            // An event offered after the queue was found empty but before the flag was cleared
+            if (!closed.get() && !buffer.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+    }
+}
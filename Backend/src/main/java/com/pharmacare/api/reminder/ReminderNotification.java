@@ -0,0 +1,16 @@
+package com.pharmacare.api.reminder;
+
+import java.time.LocalDateTime;
+
+/**
+ * A due reminder with what a notifier needs to address and describe it.
+ */
+public record ReminderNotification(Long reminderId,
+                                   Long userId,
+                                   String email,
+                                   String firstName,
+                                   String medicationName,
+                                   String dosage,
+                                   LocalDateTime reminderTime,
+                                   String notes) {
+}
@@ -0,0 +1,12 @@
+package com.pharmacare.api.reminder;
+
+/**
+ * Delivers due reminders to their users. Selected with {@code reminders.dispatch.notifier}.
+ */
+public interface ReminderNotifier {
+
+    /**
+     * Throwing marks the reminder as not delivered, so it is retried by a later sweep.
+     */
+    void send(ReminderNotification notification);
+}
@@ -0,0 +1,62 @@
+package com.pharmacare.api.reminder;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for {@link ReminderEventHub} and the {@code /api/reminders/stream} endpoint.
+ */
+@Data
+@ConfigurationProperties(prefix = "reminders.stream")
+public class ReminderStreamProperties {
+
+    /**
+     * Connections are closed after this long and the client reconnects, which bounds how long a revoked
+     * token keeps receiving events.
+     */
+    private Duration timeout = Duration.ofMinutes(30);
+
+    /**
+     * Interval of the keep-alive comment. Must stay below the idle timeout of every proxy in front of the
+     * application.
+     */
+    private Duration heartbeatInterval = Duration.ofSeconds(25);
+
+    /**
+     * Delay clients are told to wait before reconnecting.
+     */
+    private Duration reconnectDelay = Duration.ofSeconds(5);
+
+    /**
+     * Connections accepted by this node. Further ones get 503 with a Retry-After header.
+     */
+    private int maxConnections = 20_000;
+
+    /**
+     * Streams one user may hold on a node, e.g. one per open tab or device. Opening more closes the oldest.
+     */
+    private int maxConnectionsPerUser = 5;
+
+    /**
+     * Events queued per connection. A client that falls this far behind is disconnected and resynchronises
+     * when it reconnects.
+     */
+    private int bufferSize = 64;
+
+    /**
+     * Threads writing queued events to connections, shared by all connections.
+     */
+    private int senderThreads = 4;
+
+    /**
+     * Messages waiting to be relayed over Redis. When the queue is full, events reach this node's clients only.
+     */
+    private int relayQueueSize = 1000;
+
+    /**
+     * Redis channel events are relayed on so that every node reaches the clients connected to it.
+     */
+    private String channel = "pharmacare:reminders:events";
+}
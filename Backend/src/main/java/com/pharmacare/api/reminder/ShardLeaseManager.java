@@ -0,0 +1,149 @@
+package com.pharmacare.api.reminder;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Splits reminder dispatch between backend nodes. Reminders belong to shard {@code user_id mod shards},
+ * and each shard is leased to one node at a time through {@code reminder_shard_leases}. Every heartbeat a
+ * node renews its leases, registers itself in {@code reminder_dispatch_nodes}, and moves towards its fair
+ * share of {@code ceil(shards / live nodes)}: it takes free or expired shards when it has fewer, and gives
+ * shards back when it has more. A joining node therefore gets shards as the others shed them, and the
+ * shards of a node that stops heartbeating are picked up once their leases expire.
+ * <p>
+ * All lease times use the database clock. Acquisition locks candidate rows with {@code FOR UPDATE SKIP
+ * LOCKED}, so nodes heartbeating at the same moment take different shards instead of waiting on each other.
+ * <p>
+ * Not thread-safe; {@link ReminderDispatcher} calls it from its lease thread.
+ */
+@Component
+public class ShardLeaseManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardLeaseManager.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int shards;
+    private final long leaseTtlMs;
+    private final String nodeId;
+    private Set<Integer> owned = Set.of();
+
+    public ShardLeaseManager(JdbcTemplate jdbcTemplate, ReminderDispatchProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = properties.getShards();
+        this.leaseTtlMs = properties.getLeaseTtl().toMillis();
+        this.nodeId = hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS reminder_shard_leases (" +
+                    "shard INTEGER PRIMARY KEY, owner VARCHAR(100), lease_until TIMESTAMP, epoch BIGINT NOT NULL DEFAULT 0)");
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS reminder_dispatch_nodes (" +
+                    "node_id VARCHAR(100) PRIMARY KEY, heartbeat_at TIMESTAMP NOT NULL)");
+        } catch (DataAccessException e) {
+            // Another node starting at the same moment may win the race to create the tables
+            logger.debug("Lease tables not created by this node: {}", e.getMessage());
+        }
+        jdbcTemplate.update("INSERT INTO reminder_shard_leases (shard) " +
+                "SELECT generate_series(0, ? - 1) ON CONFLICT (shard) DO NOTHING", shards);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public int getShardCount() {
+        return shards;
+    }
+
+    public static int shardOf(long userId, int shards) {
+        return (int) Math.floorMod(userId, (long) shards);
+    }
+
+    /**
+     * Renews this node's leases and rebalances towards its fair share.
+     *
+     * @return the shards this node holds until the next heartbeat
+     */
+    public Set<Integer> heartbeat() {
+        String ttl = leaseTtlMs + " milliseconds";
+        jdbcTemplate.update("INSERT INTO reminder_dispatch_nodes (node_id, heartbeat_at) VALUES (?, now()) " +
+                "ON CONFLICT (node_id) DO UPDATE SET heartbeat_at = now()", nodeId);
+        jdbcTemplate.update("DELETE FROM reminder_dispatch_nodes WHERE heartbeat_at < now() - ?::interval", ttl);
+
+        Set<Integer> held = new HashSet<>(jdbcTemplate.queryForList(
+                "UPDATE reminder_shard_leases SET lease_until = now() + ?::interval " +
+                "WHERE owner = ? AND lease_until > now() AND shard < ? RETURNING shard",
+                Integer.class, ttl, nodeId, shards));
+
+        Integer registered = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reminder_dispatch_nodes", Integer.class);
+        int liveNodes = Math.max(1, registered == null ? 1 : registered);
+        int fairShare = (shards + liveNodes - 1) / liveNodes;
+
+        if (held.size() > fairShare) {
+            List<Integer> surplus = held.stream().sorted().skip(fairShare).toList();
+            release(surplus);
+            surplus.forEach(held::remove);
+        } else if (held.size() < fairShare) {
+            held.addAll(jdbcTemplate.queryForList(
+                    "UPDATE reminder_shard_leases SET owner = ?, lease_until = now() + ?::interval, epoch = epoch + 1 " +
+                    "WHERE shard IN (SELECT shard FROM reminder_shard_leases " +
+                    "WHERE shard < ? AND (owner IS NULL OR lease_until IS NULL OR lease_until <= now()) " +
+                    "ORDER BY shard LIMIT ? FOR UPDATE SKIP LOCKED) RETURNING shard",
+                    Integer.class, nodeId, ttl, shards, fairShare - held.size()));
+        }
+
+        if (!held.equals(owned)) {
+            logger.info("Node {} now dispatches {} of {} reminder shards ({} live nodes)",
+                    nodeId, held.size(), shards, liveNodes);
+        }
+        owned = Set.copyOf(held);
+        return owned;
+    }
+
+    /**
+     * Gives up every lease and deregisters the node so the others can take over without waiting for expiry.
+     */
+    public void releaseAll() {
+        release(owned);
+        owned = Set.of();
+        jdbcTemplate.update("DELETE FROM reminder_dispatch_nodes WHERE node_id = ?", nodeId);
+    }
+
+    private void release(Collection<Integer> released) {
+        if (released.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(connection -> {
+            Array shardArray = connection.createArrayOf("integer", released.toArray());
+            PreparedStatement statement = connection.prepareStatement("UPDATE reminder_shard_leases SET owner = NULL, lease_until = NULL " +
+                    "WHERE owner = ? AND shard = ANY (?)");
+            statement.setString(1, nodeId);
+            statement.setArray(2, shardArray);
+            return statement;
+        });
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "node";
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.pharmacare.api.reminder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel. Level {@code i} has {@code wheelSize} slots of {@code tickMs * wheelSize^i}
+ * milliseconds each, so adding and expiring an entry is constant time however many are pending. When time
+ * crosses a slot boundary of an upper level, that slot's entries cascade into the finer levels below.
+ * <p>
+ * Deadlines fire with tick precision: an entry fires during the tick its deadline falls in. Slots are
+ * aligned to the epoch, so the wheel can be rebuilt at any time from persisted deadlines.
+ * <p>
+ * Not thread-safe; the owner confines it to a single thread.
+ */
+final class TimingWheel<T> {
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final long[] levelTicks;
+    private final List<List<Entry<T>>[]> levels = new ArrayList<>();
+    private long currentTime;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(long tickMs, int wheelSize, int levelCount, long startMs) {
+        if (tickMs <= 0 || wheelSize < 2 || levelCount < 1) {
+            throw new IllegalArgumentException("Invalid timing wheel dimensions");
+        }
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.levelTicks = new long[levelCount];
+        long levelTick = tickMs;
+        for (int level = 0; level < levelCount; level++) {
+            levelTicks[level] = levelTick;
+            levels.add(new List[wheelSize]);
+            levelTick = Math.multiplyExact(levelTick, wheelSize);
+        }
+        this.currentTime = startMs - Math.floorMod(startMs, tickMs);
+    }
+
+    /**
+     * Furthest a deadline may lie beyond the current time.
+     */
+    long horizonMs() {
+        return levelTicks[levelTicks.length - 1] * wheelSize - tickMs;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return {@code false} if the deadline falls in a tick that has already been processed, in which case
+     *         the entry was not added and the caller should treat it as due
+     * @throws IllegalArgumentException if the deadline is beyond {@link #horizonMs()}
+     */
+    boolean add(long deadlineMs, T item) {
+        long delta = deadlineMs - currentTime;
+        if (delta < tickMs) {
+            return false;
+        }
+        for (int level = 0; level < levelTicks.length; level++) {
+            if (delta < levelTicks[level] * wheelSize) {
+                int slot = (int) Math.floorMod(deadlineMs / levelTicks[level], (long) wheelSize);
+                List<Entry<T>>[] slots = levels.get(level);
+                if (slots[slot] == null) {
+                    slots[slot] = new ArrayList<>();
+                }
+                slots[slot].add(new Entry<>(deadlineMs, item));
+                size++;
+                return true;
+            }
+        }
+        throw new IllegalArgumentException("Deadline " + deadlineMs + " is beyond the wheel horizon");
+    }
+
+    /**
+     * Moves the wheel forward to {@code nowMs}, passing every entry whose tick has been reached to
+     * {@code expired}.
+     */
+    void advance(long nowMs, Consumer<T> expired) {
+        while (currentTime + tickMs <= nowMs) {
+            currentTime += tickMs;
+            for (int level = levelTicks.length - 1; level >= 1; level--) {
+                if (currentTime % levelTicks[level] == 0) {
+                    cascade(level, expired);
+                }
+            }
+            List<Entry<T>> due = takeSlot(0);
+            if (due != null) {
+                due.forEach(entry -> expired.accept(entry.item()));
+            }
+        }
+    }
+
+    private void cascade(int level, Consumer<T> expired) {
+        List<Entry<T>> entries = takeSlot(level);
+        if (entries == null) {
+            return;
+        }
+        for (Entry<T> entry : entries) {
+            if (!add(entry.deadlineMs(), entry.item())) {
+                expired.accept(entry.item());
+            }
+        }
+    }
+
+    private List<Entry<T>> takeSlot(int level) {
+        int slot = (int) Math.floorMod(currentTime / levelTicks[level], (long) wheelSize);
+        List<Entry<T>>[] slots = levels.get(level);
+        List<Entry<T>> entries = slots[slot];
+        if (entries != null) {
+            slots[slot] = null;
+            size -= entries.size();
+        }
+        return entries;
+    }
+
+    private record Entry<T>(long deadlineMs, T item) {
+    }
+}
@@ -2,16 +2,20 @@ package com.pharmacare.api.repository;
 
 import com.pharmacare.api.model.Inventory;
 import com.pharmacare.api.model.Pharmacy;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface InventoryRepository extends JpaRepository<Inventory, Long> {
+public interface InventoryRepository extends JpaRepository<Inventory, Long>, InventoryRepositoryCustom {
     
     List<Inventory> findByPharmacy(Pharmacy pharmacy);
     
@@ -19,10 +23,55 @@ public interface InventoryRepository extends JpaRepository<Inventory, Long> {
     
     long countByPharmacyAndActive(Pharmacy pharmacy, boolean active);
     
+    @Query("SELECT i FROM Inventory i WHERE i.pharmacy = :pharmacy AND i.active = true " +
+           "ORDER BY i.medicationName, i.id")
+    List<Inventory> findActivePage(@Param("pharmacy") Pharmacy pharmacy, Pageable pageable);
+    
+    /**
+     * Keyset page of active items strictly after ({@code afterName}, {@code afterId}) in
+     * (medicationName, id) order. The redundant {@code >=} bound lets the planner start the index
+     * range scan at the cursor instead of filtering from the first row.
+     */
+    @Query("SELECT i FROM Inventory i WHERE i.pharmacy = :pharmacy AND i.active = true " +
+           "AND i.medicationName >= :afterName " +
+           "AND (i.medicationName > :afterName OR i.id > :afterId) " +
+           "ORDER BY i.medicationName, i.id")
+    List<Inventory> findActivePageAfter(@Param("pharmacy") Pharmacy pharmacy,
+                                        @Param("afterName") String afterName,
+                                        @Param("afterId") Long afterId,
+                                        Pageable pageable);
+    
     long countByPharmacyAndQuantityAndActive(Pharmacy pharmacy, Integer quantity, boolean active);
     
     List<Inventory> findByPharmacyAndMedicationNameContainingIgnoreCase(Pharmacy pharmacy, String medicationName);
     
+    /**
+     * Typo-tolerant name search backed by the {@code pg_trgm} GIN index on {@code lower(medication_name)}.
+     * Names starting with the term rank first, then matches by trigram word similarity, so "amoxcilin"
+     * still finds "Amoxicillin 500mg". Only used when {@code TrigramSearchSupport} found the extension.
+     *
+     * @param term   the lower-cased search term
+     * @param prefix the lower-cased term with LIKE wildcards escaped, followed by {@code %}
+     */
+    @Query(value = "SELECT i.* FROM inventory i " +
+                   "WHERE i.pharmacy_id = :pharmacyId AND i.active = true " +
+                   "AND (lower(i.medication_name) LIKE :prefix OR :term <% lower(i.medication_name)) " +
+                   "ORDER BY (lower(i.medication_name) LIKE :prefix) DESC, " +
+                   "word_similarity(:term, lower(i.medication_name)) DESC, i.medication_name, i.id " +
+                   "LIMIT :limit", nativeQuery = true)
+    List<Inventory> searchActiveByName(@Param("pharmacyId") Long pharmacyId,
+                                       @Param("term") String term,
+                                       @Param("prefix") String prefix,
+                                       @Param("limit") int limit);
+    
+    /**
+     * Loads and row-locks the given inventory items in a single statement. Rows are locked in id order so
+     * that two checkouts touching overlapping items always acquire their locks in the same sequence.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM Inventory i WHERE i.id IN :ids ORDER BY i.id")
+    List<Inventory> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+    
     List<Inventory> findByPharmacyAndMedicationType(Pharmacy pharmacy, Inventory.MedicationType medicationType);
     
     @Query("SELECT i FROM Inventory i WHERE i.pharmacy = :pharmacy AND i.quantity <= i.minimumStockLevel")
@@ -45,4 +94,28 @@ public interface InventoryRepository extends JpaRepository<Inventory, Long> {
                                @Param("endDate") LocalDate endDate);
                                
     long countByPharmacyAndExpiryDateBeforeAndActive(Pharmacy pharmacy, LocalDate date, boolean active);
-} 
\ No newline at end of file
+    
+    /**
+     * Computes every dashboard bucket in one pass over the pharmacy's inventory. Each bucket keeps the
+     * filter of the count query it replaces: low stock and expiring soon include inactive items, the
+     * others count active items only.
+     */
+    @Query(value = "SELECT " +
+                   "COUNT(*) FILTER (WHERE i.active) AS \"totalItems\", " +
+                   "COUNT(*) FILTER (WHERE i.quantity <= i.minimum_stock_level) AS \"lowStockCount\", " +
+                   "COUNT(*) FILTER (WHERE i.active AND i.quantity = 0) AS \"outOfStockCount\", " +
+                   "COUNT(*) FILTER (WHERE i.active AND i.expiry_date < :today) AS \"expiredCount\", " +
+                   "COUNT(*) FILTER (WHERE i.expiry_date BETWEEN :today AND :expiringBy) AS \"expiringSoonCount\" " +
+                   "FROM inventory i WHERE i.pharmacy_id = :pharmacyId", nativeQuery = true)
+    InventoryStatsView aggregateStats(@Param("pharmacyId") Long pharmacyId,
+                                      @Param("today") LocalDate today,
+                                      @Param("expiringBy") LocalDate expiringBy);
+    
+    interface InventoryStatsView {
+        long getTotalItems();
+        long getLowStockCount();
+        long getOutOfStockCount();
+        long getExpiredCount();
+        long getExpiringSoonCount();
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.pharmacare.api.repository;
+
+import com.pharmacare.api.model.Inventory;
+import com.pharmacare.api.model.Pharmacy;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+public interface InventoryRepositoryCustom {
+
+    /**
+     * Subtracts the mapped quantity from each inventory row in one JDBC round trip, skipping any row that does
+     * not have enough stock. The check and the write happen in the same statement, so concurrent sales can
+     * never drive stock negative.
+     *
+     * @return the inventory ids whose decrement was rejected; empty if every row was updated
+     */
+    List<Long> decrementStockIfAvailable(Map<Long, Integer> quantitiesByInventoryId);
+
+    /**
+     * Inserts the item, or, if a soft-deleted row holds the same (pharmacy, medicationName, batchNumber),
+     * overwrites that row with the item and makes it active again, the same way the bulk import does.
+     *
+     * @return the id of the inserted or reactivated row; empty if an active row already holds the batch
+     */
+    Optional<Long> insertOrReactivate(Inventory item);
+
+    /**
+     * Feeds every active item of the pharmacy, in (medicationName, id) order, to {@code consumer} straight
+     * from a server-side cursor. The items are detached and share the given {@code pharmacy} instance.
+     * Must run inside a transaction: PostgreSQL only honours the fetch size with auto-commit off.
+     */
+    void streamActiveInventory(Pharmacy pharmacy, Consumer<Inventory> consumer);
+}
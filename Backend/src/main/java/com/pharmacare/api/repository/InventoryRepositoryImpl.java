@@ -0,0 +1,136 @@
+package com.pharmacare.api.repository;
+
+import com.pharmacare.api.model.Inventory;
+import com.pharmacare.api.model.Pharmacy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+@RequiredArgsConstructor
+public class InventoryRepositoryImpl implements InventoryRepositoryCustom {
+
+    private static final String DECREMENT_STOCK_SQL =
+            "UPDATE inventory SET quantity = quantity - ?, updated_at = ? WHERE id = ? AND quantity >= ?";
+
+    // The id expression reserves a block of ids like InventoryImportService does, and uses only its first id
+    private static final String INSERT_OR_REACTIVATE_SQL =
+            "INSERT INTO inventory (id, pharmacy_id, medication_name, manufacturer, batch_number, expiry_date, " +
+            "quantity, minimum_stock_level, cost_price, selling_price, active, medication_type, description, " +
+            "dosage_form, strength, storage_conditions, created_at, updated_at) " +
+            "VALUES (greatest(1, nextval('inventory_seq') - " + (Inventory.ID_BLOCK_SIZE - 1) + "), " +
+            "?, ?, ?, ?, ?, ?, ?, ?, ?, true, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (pharmacy_id, medication_name, batch_number) DO UPDATE SET " +
+            "manufacturer = EXCLUDED.manufacturer, expiry_date = EXCLUDED.expiry_date, " +
+            "quantity = EXCLUDED.quantity, minimum_stock_level = EXCLUDED.minimum_stock_level, " +
+            "cost_price = EXCLUDED.cost_price, selling_price = EXCLUDED.selling_price, active = true, " +
+            "medication_type = EXCLUDED.medication_type, description = EXCLUDED.description, " +
+            "dosage_form = EXCLUDED.dosage_form, strength = EXCLUDED.strength, " +
+            "storage_conditions = EXCLUDED.storage_conditions, updated_at = EXCLUDED.updated_at " +
+            "WHERE inventory.active = false " +
+            "RETURNING id";
+
+    private static final String STREAM_ACTIVE_SQL =
+            "SELECT id, medication_name, manufacturer, batch_number, expiry_date, quantity, minimum_stock_level, " +
+            "cost_price, selling_price, active, medication_type, description, dosage_form, strength, " +
+            "storage_conditions, created_at, updated_at " +
+            "FROM inventory WHERE pharmacy_id = ? AND active = true ORDER BY medication_name, id";
+
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<Long> decrementStockIfAvailable(Map<Long, Integer> quantitiesByInventoryId) {
+        if (quantitiesByInventoryId.isEmpty()) {
+            return List.of();
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Long> inventoryIds = new ArrayList<>(quantitiesByInventoryId.size());
+        List<Object[]> batchArgs = new ArrayList<>(quantitiesByInventoryId.size());
+        quantitiesByInventoryId.forEach((inventoryId, quantity) -> {
+            inventoryIds.add(inventoryId);
+            batchArgs.add(new Object[]{quantity, now, inventoryId, quantity});
+        });
+
+        int[] updateCounts = jdbcTemplate.batchUpdate(DECREMENT_STOCK_SQL, batchArgs);
+
+        List<Long> rejected = new ArrayList<>();
+        for (int i = 0; i < updateCounts.length; i++) {
+            if (updateCounts[i] == 0) {
+                rejected.add(inventoryIds.get(i));
+            }
+        }
+        return rejected;
+    }
+
+    @Override
+    public Optional<Long> insertOrReactivate(Inventory item) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Long> ids = jdbcTemplate.query(INSERT_OR_REACTIVATE_SQL, (rs, rowNum) -> rs.getLong("id"),
+                item.getPharmacy().getId(),
+                item.getMedicationName(),
+                item.getManufacturer(),
+                item.getBatchNumber(),
+                item.getExpiryDate() != null ? Date.valueOf(item.getExpiryDate()) : null,
+                item.getQuantity(),
+                item.getMinimumStockLevel(),
+                item.getCostPrice(),
+                item.getSellingPrice(),
+                item.getMedicationType() != null ? item.getMedicationType().name() : null,
+                item.getDescription(),
+                item.getDosageForm(),
+                item.getStrength(),
+                item.getStorageConditions(),
+                now,
+                now);
+        return ids.stream().findFirst();
+    }
+
+    @Override
+    public void streamActiveInventory(Pharmacy pharmacy, Consumer<Inventory> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(STREAM_ACTIVE_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            statement.setLong(1, pharmacy.getId());
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(mapInventory(rs, pharmacy)));
+    }
+
+    private Inventory mapInventory(ResultSet rs, Pharmacy pharmacy) throws SQLException {
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        Timestamp updatedAt = rs.getTimestamp("updated_at");
+        return Inventory.builder()
+                .id(rs.getLong("id"))
+                .pharmacy(pharmacy)
+                .medicationName(rs.getString("medication_name"))
+                .manufacturer(rs.getString("manufacturer"))
+                .batchNumber(rs.getString("batch_number"))
+                .expiryDate(rs.getDate("expiry_date").toLocalDate())
+                .quantity(rs.getInt("quantity"))
+                .minimumStockLevel(rs.getInt("minimum_stock_level"))
+                .costPrice(rs.getBigDecimal("cost_price"))
+                .sellingPrice(rs.getBigDecimal("selling_price"))
+                .active(rs.getBoolean("active"))
+                .medicationType(Inventory.MedicationType.valueOf(rs.getString("medication_type")))
+                .description(rs.getString("description"))
+                .dosageForm(rs.getString("dosage_form"))
+                .strength(rs.getString("strength"))
+                .storageConditions(rs.getString("storage_conditions"))
+                .createdAt(createdAt != null ? createdAt.toLocalDateTime() : null)
+                .updatedAt(updatedAt != null ? updatedAt.toLocalDateTime() : null)
+                .build();
+    }
+}
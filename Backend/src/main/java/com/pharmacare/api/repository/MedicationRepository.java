@@ -1,9 +1,16 @@
 package com.pharmacare.api.repository;
 
 import com.pharmacare.api.model.Medication;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,4 +22,20 @@ public interface MedicationRepository extends JpaRepository<Medication, Long> {
     
     long countByUserIdAndActiveTrue(Long userId);
     long countByUserIdAndActiveFalse(Long userId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT m FROM Medication m WHERE m.id = :id")
+    Optional<Medication> findByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * Active scheduled medications whose generated reminders end before {@code threshold}.
+     */
+    @Query("SELECT m.id FROM Medication m WHERE m.active = true AND m.schedule.recurrence IS NOT NULL " +
+           "AND (m.endDate IS NULL OR m.endDate >= :today) " +
+           "AND (m.scheduleMaterializedUntil IS NULL OR m.scheduleMaterializedUntil < :threshold) " +
+           "AND m.id > :afterId ORDER BY m.id")
+    List<Long> findIdsToMaterialize(@Param("today") LocalDate today,
+                                    @Param("threshold") LocalDateTime threshold,
+                                    @Param("afterId") Long afterId,
+                                    Pageable pageable);
 } 
\ No newline at end of file
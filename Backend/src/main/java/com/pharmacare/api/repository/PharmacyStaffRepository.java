@@ -4,6 +4,8 @@ import com.pharmacare.api.model.Pharmacy;
 import com.pharmacare.api.model.PharmacyStaff;
 import com.pharmacare.api.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -27,4 +29,13 @@ public interface PharmacyStaffRepository extends JpaRepository<PharmacyStaff, Lo
     List<PharmacyStaff> findByPharmacyId(Long pharmacyId);
     
     List<PharmacyStaff> findByUserId(Long userId);
+    
+    @Query("SELECT s.pharmacy.id AS pharmacyId, s.role AS role FROM PharmacyStaff s " +
+           "WHERE s.user.id = :userId AND s.active = true")
+    List<StaffMembershipView> findActiveMemberships(@Param("userId") Long userId);
+    
+    interface StaffMembershipView {
+        Long getPharmacyId();
+        PharmacyStaff.StaffRole getRole();
+    }
 } 
\ No newline at end of file
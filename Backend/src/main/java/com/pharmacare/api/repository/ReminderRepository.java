@@ -2,6 +2,9 @@ package com.pharmacare.api.repository;
 
 import com.pharmacare.api.model.Reminder;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -18,4 +21,13 @@ public interface ReminderRepository extends JpaRepository<Reminder, Long> {
     long countByMedicationUserIdAndCompletedFalse(Long userId);
     long countByMedicationUserIdAndCompletedTrueAndReminderTimeAfter(Long userId, LocalDateTime after);
     long countByMedicationUserIdAndReminderTimeAfter(Long userId, LocalDateTime after);
+
+    /**
+     * Removes generated reminders of a medication that are still ahead and untouched, before its schedule
+     * is regenerated.
+     */
+    @Modifying
+    @Query("DELETE FROM Reminder r WHERE r.medication.id = :medicationId AND r.fromSchedule = true " +
+           "AND r.completed = false AND r.notifiedAt IS NULL AND r.reminderTime > :after")
+    int deleteUpcomingFromSchedule(@Param("medicationId") Long medicationId, @Param("after") LocalDateTime after);
 } 
\ No newline at end of file
@@ -1,9 +1,15 @@
 package com.pharmacare.api.repository;
 
+import com.pharmacare.api.model.ERole;
+import com.pharmacare.api.model.PharmacyStaff;
 import com.pharmacare.api.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +17,33 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     
     Boolean existsByEmail(String email);
+    
+    /**
+     * Loads a user, its roles and its pharmacy staff assignments in one round trip. The result has one row
+     * per (role, assignment) pair; staff columns are null for users without assignments. Assignments come
+     * in id order.
+     */
+    @Query("SELECT u.id AS userId, u.firstName AS firstName, u.lastName AS lastName, u.email AS email, " +
+           "u.imageUrl AS imageUrl, u.createdAt AS createdAt, r.name AS roleName, " +
+           "s.id AS staffId, s.pharmacy.id AS pharmacyId, s.role AS staffRole, s.active AS staffActive, " +
+           "s.createdAt AS staffCreatedAt, s.updatedAt AS staffUpdatedAt " +
+           "FROM User u LEFT JOIN u.roles r LEFT JOIN PharmacyStaff s ON s.user = u " +
+           "WHERE u.id = :userId ORDER BY s.id")
+    List<UserAccessView> findAccessRows(@Param("userId") Long userId);
+    
+    interface UserAccessView {
+        Long getUserId();
+        String getFirstName();
+        String getLastName();
+        String getEmail();
+        String getImageUrl();
+        LocalDateTime getCreatedAt();
+        ERole getRoleName();
+        Long getStaffId();
+        Long getPharmacyId();
+        PharmacyStaff.StaffRole getStaffRole();
+        Boolean getStaffActive();
+        LocalDateTime getStaffCreatedAt();
+        LocalDateTime getStaffUpdatedAt();
+    }
 }
\ No newline at end of file
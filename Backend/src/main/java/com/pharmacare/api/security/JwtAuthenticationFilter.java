@@ -10,13 +10,13 @@ import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 
 @Component
 @RequiredArgsConstructor
@@ -24,7 +24,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private static final Logger filterLogger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
     private final JwtTokenProvider tokenProvider;
-    private final UserDetailsService userDetailsService;
+    private final UserPrincipalCache userPrincipalCache;
+    private final RevokedFamilyCache revokedFamilyCache;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -35,15 +36,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
             if (StringUtils.hasText(jwt)) {
                 filterLogger.debug("Found JWT token in request");
-                String username = tokenProvider.getUsernameFromToken(jwt);
+                Optional<VerifiedToken> verifiedToken = tokenProvider.verify(jwt)
+                        .filter(token -> token.family() == null || !revokedFamilyCache.isRevoked(token.family()));
+                String username = verifiedToken.map(VerifiedToken::subject).orElse(null);
                 filterLogger.debug("Username from token: {}", username);
 
                 if (StringUtils.hasText(username) && SecurityContextHolder.getContext().getAuthentication() == null) {
                     filterLogger.debug("Security context is null, attempting to load UserDetails");
-                    UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                    UserDetails userDetails = userPrincipalCache.get(username);
                     filterLogger.debug("UserDetails loaded: {}", userDetails.getUsername());
 
-                    if (tokenProvider.validateToken(jwt, userDetails)) {
+                    if (username.equals(userDetails.getUsername())) {
                         filterLogger.debug("JWT token is valid");
                         UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                                 userDetails, null, userDetails.getAuthorities());
@@ -1,18 +1,29 @@
 package com.pharmacare.api.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
@@ -22,6 +33,11 @@ import java.util.Base64;
 @Component
 public class JwtTokenProvider {
 
+    private static final Logger logger = LoggerFactory.getLogger(JwtTokenProvider.class);
+
+    // Refresh token family an access token belongs to; see RefreshTokenService
+    public static final String FAMILY_CLAIM = "fam";
+
     @Value("${jwt.secret}")
     private String jwtSecret;
 
@@ -30,8 +46,16 @@ public class JwtTokenProvider {
 
     @Value("${jwt.refresh-expiration}")
     private long refreshExpiration;
+
+    @Value("${jwt.verified-cache.max-size:10000}")
+    private long verifiedCacheMaxSize;
     
     private Key key;
+
+    private JwtParser parser;
+
+    // SHA-256 of recently verified tokens; entries expire together with the token
+    private Cache<String, VerifiedToken> verifiedTokens;
     
     @PostConstruct
     public void init() {
@@ -48,6 +72,29 @@ public class JwtTokenProvider {
         // Create a key from the secret
         byte[] keyBytes = jwtSecret.getBytes(StandardCharsets.UTF_8);
         this.key = Keys.hmacShaKeyFor(keyBytes);
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheMaxSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String tokenHash, VerifiedToken token, long currentTime) {
+                        long remainingMillis = token.expiresAt().toEpochMilli() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String tokenHash, VerifiedToken token, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String tokenHash, VerifiedToken token, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
     }
 
     private Key getSigningKey() {
@@ -64,6 +111,12 @@ public class JwtTokenProvider {
         return createToken(claims, username, jwtExpiration);
     }
 
+    public String generateToken(String username, String family) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(FAMILY_CLAIM, family);
+        return createToken(claims, username, jwtExpiration);
+    }
+
     public String generateRefreshToken(String username) {
         Map<String, Object> claims = new HashMap<>();
         return createToken(claims, username, refreshExpiration);
@@ -96,20 +149,54 @@ public class JwtTokenProvider {
     }
 
     private Claims getAllClaimsFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parser.parseClaimsJws(token).getBody();
+    }
+
+    /**
+     * Checks the token's signature and expiry once and returns its claims. A token seen recently is
+     * answered from the verified-token cache without repeating the signature check or JSON parsing.
+     *
+     * @return the verified claims, or empty if the token is malformed, forged or expired
+     */
+    public Optional<VerifiedToken> verify(String token) {
+        String tokenHash = hashToken(token);
+        VerifiedToken cached = verifiedTokens.getIfPresent(tokenHash);
+        if (cached != null) {
+            return cached.isExpired() ? Optional.empty() : Optional.of(cached);
+        }
+
+        Claims claims;
+        try {
+            claims = getAllClaimsFromToken(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            logger.debug("Rejected JWT: {}", e.getMessage());
+            return Optional.empty();
+        }
+        if (claims.getSubject() == null || claims.getExpiration() == null) {
+            return Optional.empty();
+        }
+
+        VerifiedToken verified = new VerifiedToken(claims.getSubject(), claims.get(FAMILY_CLAIM, String.class),
+                claims.getExpiration().toInstant());
+        verifiedTokens.put(tokenHash, verified);
+        return Optional.of(verified);
     }
 
     public boolean validateToken(String token, UserDetails userDetails) {
-        final String username = getUsernameFromToken(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return verify(token)
+                .map(verified -> verified.subject().equals(userDetails.getUsername()))
+                .orElse(false);
     }
 
-    private boolean isTokenExpired(String token) {
-        final Date expiration = getExpirationDateFromToken(token);
-        return expiration.before(new Date());
+    /**
+     * SHA-256 of a token, used to key caches without keeping raw tokens in memory.
+     */
+    static String hashToken(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
 } 
\ No newline at end of file
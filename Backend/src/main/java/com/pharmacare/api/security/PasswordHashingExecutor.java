@@ -0,0 +1,113 @@
+package com.pharmacare.api.security;
+
+import com.pharmacare.api.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs password hashing and verification off the servlet threads. BCrypt is deliberately CPU-heavy, so a
+ * burst of logins would otherwise occupy every request thread and stall unrelated API traffic.
+ * <p>
+ * The pool and its queue are bounded. When both are full a task is rejected straight away with a
+ * {@link ServiceUnavailableException}, which the API answers with 503 and a {@code Retry-After} header.
+ * <p>
+ * Work that follows a hash, such as saving the new account, runs on the application task executor
+ * instead, so that database and Redis round trips never hold one of the few hashing threads.
+ */
+@Component
+public class PasswordHashingExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHashingExecutor.class);
+
+    private final ThreadPoolExecutor executor;
+    private final Executor continuationExecutor;
+    private final long retryAfterSeconds;
+    private final Timer hashTimer;
+    private final Timer queueWaitTimer;
+    private final Counter rejectedCounter;
+
+    public PasswordHashingExecutor(MeterRegistry meterRegistry,
+                                   @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+                                   Executor continuationExecutor,
+                                   @Value("${security.password-hashing.threads:0}") int threads,
+                                   @Value("${security.password-hashing.queue-capacity:100}") int queueCapacity,
+                                   @Value("${security.password-hashing.retry-after-seconds:2}") long retryAfterSeconds) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.continuationExecutor = continuationExecutor;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        this.hashTimer = Timer.builder("auth.password.hashing")
+                .description("Time spent running password hashing tasks")
+                .register(meterRegistry);
+        this.queueWaitTimer = Timer.builder("auth.password.queue.wait")
+                .description("Time password hashing tasks waited for a worker")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("auth.password.rejected")
+                .description("Password hashing tasks rejected because the queue was full")
+                .register(meterRegistry);
+        Gauge.builder("auth.password.queue.size", executor, pool -> pool.getQueue().size())
+                .description("Password hashing tasks waiting for a worker")
+                .register(meterRegistry);
+
+        logger.info("Password hashing pool started with {} threads and a queue of {}", poolSize, queueCapacity);
+    }
+
+    /**
+     * Schedules {@code task} on the hashing pool. The returned future fails with a
+     * {@link ServiceUnavailableException} if the pool is saturated.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        long enqueuedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                queueWaitTimer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+                return hashTimer.record(task);
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            return CompletableFuture.failedFuture(new ServiceUnavailableException(
+                    "Too many sign-in requests at the moment, please retry shortly.", retryAfterSeconds));
+        }
+    }
+
+    /**
+     * Schedules {@code task} on the hashing pool and then applies {@code then} to its result on the
+     * application task executor. Fails like {@link #submit(Supplier)} when the pool is saturated.
+     */
+    public <T, R> CompletableFuture<R> submit(Supplier<T> task, Function<? super T, ? extends R> then) {
+        return submit(task).thenApplyAsync(then, continuationExecutor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,69 @@
+package com.pharmacare.api.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pharmacare.api.model.PharmacyStaff.StaffRole;
+import com.pharmacare.api.repository.PharmacyRepository;
+import com.pharmacare.api.repository.PharmacyStaffRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Per-user map of pharmacy id to the user's role there, used by {@link PharmacySecurityService} so that an
+ * authorization check is a map lookup. Owned pharmacies map to {@link StaffRole#OWNER}; otherwise the role
+ * comes from the user's active staff assignment.
+ * <p>
+ * Call {@link #evict(Long)} after changing a user's staff assignments or pharmacy ownership. Entries on
+ * other nodes pick up the change when they expire.
+ */
+@Component
+public class PharmacyMembershipCache {
+
+    private final PharmacyRepository pharmacyRepository;
+    private final PharmacyStaffRepository pharmacyStaffRepository;
+    private final Cache<Long, Map<Long, StaffRole>> memberships;
+
+    public PharmacyMembershipCache(PharmacyRepository pharmacyRepository,
+                                   PharmacyStaffRepository pharmacyStaffRepository,
+                                   @Value("${security.membership-cache.ttl:5m}") Duration ttl,
+                                   @Value("${security.membership-cache.max-size:10000}") long maxSize) {
+        this.pharmacyRepository = pharmacyRepository;
+        this.pharmacyStaffRepository = pharmacyStaffRepository;
+        this.memberships = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * @return the user's role in the pharmacy, or {@code null} if the user is neither owner nor active staff
+     */
+    public StaffRole roleIn(Long userId, Long pharmacyId) {
+        return memberships.get(userId, this::load).get(pharmacyId);
+    }
+
+    /**
+     * @return ids of every pharmacy the user owns or works at
+     */
+    public Set<Long> pharmacyIdsOf(Long userId) {
+        return memberships.get(userId, this::load).keySet();
+    }
+
+    public void evict(Long userId) {
+        memberships.invalidate(userId);
+    }
+
+    private Map<Long, StaffRole> load(Long userId) {
+        Map<Long, StaffRole> roles = new HashMap<>();
+        pharmacyStaffRepository.findActiveMemberships(userId)
+                .forEach(membership -> roles.put(membership.getPharmacyId(), membership.getRole()));
+        pharmacyRepository.findIdsByOwnerId(userId)
+                .forEach(pharmacyId -> roles.put(pharmacyId, StaffRole.OWNER));
+        return Map.copyOf(roles);
+    }
+}
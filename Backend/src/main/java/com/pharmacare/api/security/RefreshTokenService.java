@@ -0,0 +1,135 @@
+package com.pharmacare.api.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Opaque, single-use refresh tokens kept in Redis under the SHA-256 of the token, so a leaked Redis
+ * snapshot does not contain usable tokens.
+ * <p>
+ * Every login starts a token family. Each refresh consumes the presented token and issues its successor
+ * in the same family. Presenting a token that was already consumed means a copy is in someone else's
+ * hands, so the whole family is revoked. Access tokens carry their family id, and
+ * {@link JwtAuthenticationFilter} rejects those whose family is in the {@link RevokedFamilyCache}.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private static final String TOKEN_KEY_PREFIX = "auth:refresh:";
+    private static final String CONSUMED_KEY_PREFIX = "auth:refresh-consumed:";
+    private static final int TOKEN_BYTES = 32;
+
+    // Deletes the token and leaves the consumed marker in one step, so a replay always finds one of the two
+    private static final RedisScript<String> CONSUME_SCRIPT = new DefaultRedisScript<>(
+            "local stored = redis.call('GET', KEYS[1]) " +
+            "if not stored then return false end " +
+            "redis.call('DEL', KEYS[1]) " +
+            "local family = string.sub(stored, 1, string.find(stored, '\\n', 1, true) - 1) " +
+            "redis.call('SET', KEYS[2], family, 'PX', ARGV[1]) " +
+            "return stored",
+            String.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final RevokedFamilyCache revokedFamilyCache;
+    private final Duration refreshTokenTtl;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    public RefreshTokenService(StringRedisTemplate redisTemplate,
+                               RevokedFamilyCache revokedFamilyCache,
+                               @Value("${jwt.refresh-expiration}") long refreshExpirationMs) {
+        this.redisTemplate = redisTemplate;
+        this.revokedFamilyCache = revokedFamilyCache;
+        this.refreshTokenTtl = Duration.ofMillis(refreshExpirationMs);
+    }
+
+    public record RefreshGrant(String refreshToken, String family, String subject) {
+    }
+
+    /**
+     * Starts a new token family for {@code subject} and returns its first refresh token.
+     */
+    public RefreshGrant issue(String subject) {
+        return store(subject, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Consumes {@code refreshToken} and returns its successor.
+     *
+     * @return empty if the token is unknown, expired, already used or belongs to a revoked family
+     */
+    public Optional<RefreshGrant> rotate(String refreshToken) {
+        String tokenHash = sha256(refreshToken);
+        // Deleting on read makes the token single-use even under concurrent refreshes
+        String stored = redisTemplate.execute(CONSUME_SCRIPT,
+                List.of(TOKEN_KEY_PREFIX + tokenHash, CONSUMED_KEY_PREFIX + tokenHash),
+                String.valueOf(refreshTokenTtl.toMillis()));
+        if (stored == null) {
+            String family = redisTemplate.opsForValue().get(CONSUMED_KEY_PREFIX + tokenHash);
+            if (family != null) {
+                logger.warn("Refresh token reuse detected, revoking token family {}", family);
+                revokeFamily(family);
+            }
+            return Optional.empty();
+        }
+
+        int separator = stored.indexOf('\n');
+        String family = stored.substring(0, separator);
+        String subject = stored.substring(separator + 1);
+        if (revokedFamilyCache.isRevoked(family)) {
+            return Optional.empty();
+        }
+        return Optional.of(store(subject, family));
+    }
+
+    /**
+     * Revokes the family of {@code refreshToken}, ending every session derived from the same login.
+     */
+    public void revoke(String refreshToken) {
+        String tokenHash = sha256(refreshToken);
+        String stored = redisTemplate.opsForValue().getAndDelete(TOKEN_KEY_PREFIX + tokenHash);
+        String family = stored != null
+                ? stored.substring(0, stored.indexOf('\n'))
+                : redisTemplate.opsForValue().get(CONSUMED_KEY_PREFIX + tokenHash);
+        if (family != null) {
+            revokeFamily(family);
+        }
+    }
+
+    private void revokeFamily(String family) {
+        revokedFamilyCache.revoke(family);
+    }
+
+    private RefreshGrant store(String subject, String family) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        String refreshToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        redisTemplate.opsForValue().set(TOKEN_KEY_PREFIX + sha256(refreshToken), family + "\n" + subject, refreshTokenTtl);
+        return new RefreshGrant(refreshToken, family, subject);
+    }
+
+    private static String sha256(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.pharmacare.api.security;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Per-node copy of the revoked refresh-token families, so that {@link JwtAuthenticationFilter} can reject
+ * access tokens of a revoked family without a Redis call per request.
+ * <p>
+ * Revocations are kept in a Redis sorted set scored by expiry. Each node loads the set at startup, applies
+ * revocations from other nodes as they are announced over pub/sub, and reloads the whole set every
+ * {@code security.revoked-families.reload-interval-ms} to pick up announcements it missed.
+ * <p>
+ * When Redis is unreachable the node keeps answering from the last set it loaded: requests are not
+ * rejected because of the outage, and revocations made on other nodes meanwhile take effect here with the
+ * first successful reload. A revocation made on this node applies here at once either way.
+ */
+@Component
+public class RevokedFamilyCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(RevokedFamilyCache.class);
+
+    private static final String REVOKED_KEY = "auth:refresh-revoked";
+    private static final String CHANNEL = "auth:refresh-revoked";
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final Duration revocationTtl;
+
+    // Family id to the epoch millisecond its revocation expires
+    private final ConcurrentMap<String, Long> revoked = new ConcurrentHashMap<>();
+
+    public RevokedFamilyCache(StringRedisTemplate redisTemplate,
+                              RedisMessageListenerContainer listenerContainer,
+                              @Value("${jwt.refresh-expiration}") long refreshExpirationMs,
+                              @Value("${jwt.expiration}") long accessExpirationMs) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        // A revoked family must outlive every access and refresh token that can still carry it
+        this.revocationTtl = Duration.ofMillis(Math.max(refreshExpirationMs, accessExpirationMs));
+    }
+
+    @PostConstruct
+    public void start() {
+        listenerContainer.addMessageListener(
+                (message, pattern) -> onRevocation(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(CHANNEL));
+        reload();
+    }
+
+    public boolean isRevoked(String family) {
+        Long expiresAt = revoked.get(family);
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
+    }
+
+    /**
+     * Revokes the family on this node and announces it to the others.
+     *
+     * @throws org.springframework.dao.DataAccessException if Redis could not be updated
+     */
+    public void revoke(String family) {
+        long expiresAt = System.currentTimeMillis() + revocationTtl.toMillis();
+        revoked.put(family, expiresAt);
+        redisTemplate.opsForZSet().add(REVOKED_KEY, family, expiresAt);
+        redisTemplate.convertAndSend(CHANNEL, expiresAt + "\n" + family);
+    }
+
+    @Scheduled(fixedDelayString = "${security.revoked-families.reload-interval-ms:60000}",
+            initialDelayString = "${security.revoked-families.reload-interval-ms:60000}")
+    public void reload() {
+        long now = System.currentTimeMillis();
+        try {
+            redisTemplate.opsForZSet().removeRangeByScore(REVOKED_KEY, 0, now);
+            Set<ZSetOperations.TypedTuple<String>> current =
+                    redisTemplate.opsForZSet().rangeByScoreWithScores(REVOKED_KEY, now, Double.MAX_VALUE);
+            if (current != null) {
+                current.forEach(entry -> revoked.merge(entry.getValue(), entry.getScore().longValue(), Math::max));
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not reload revoked token families, keeping {} known ones: {}", revoked.size(), e.getMessage());
+        }
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+    }
+
+    private void onRevocation(String message) {
+        int separator = message.indexOf('\n');
+        if (separator < 0) {
+            return;
+        }
+        try {
+            revoked.merge(message.substring(separator + 1), Long.parseLong(message.substring(0, separator)), Math::max);
+        } catch (NumberFormatException e) {
+            logger.warn("Ignoring malformed revocation message");
+        }
+    }
+}
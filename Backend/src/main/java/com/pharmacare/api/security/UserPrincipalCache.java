@@ -0,0 +1,47 @@
+package com.pharmacare.api.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Short-lived, per-node cache of the principals that {@link JwtAuthenticationFilter} authenticates, so a
+ * request with a valid token does not need to load the user and its roles from the database.
+ * <p>
+ * Code that changes anything a principal carries (name, roles, enabled flag) must call
+ * {@link #evict(String)}. The cache is local to each node, so on other nodes a change takes effect once
+ * the entry expires.
+ */
+@Component
+public class UserPrincipalCache {
+
+    private final UserDetailsService userDetailsService;
+    private final Cache<String, UserDetails> principals;
+
+    public UserPrincipalCache(UserDetailsService userDetailsService,
+                              @Value("${security.principal-cache.ttl:60s}") Duration ttl,
+                              @Value("${security.principal-cache.max-size:10000}") long maxSize) {
+        this.userDetailsService = userDetailsService;
+        this.principals = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Returns the cached principal for {@code email}, loading it through the {@link UserDetailsService} on
+     * a miss. A missing user is not cached.
+     */
+    public UserDetails get(String email) {
+        return principals.get(email, userDetailsService::loadUserByUsername);
+    }
+
+    public void evict(String email) {
+        principals.invalidate(email);
+    }
+}
@@ -0,0 +1,59 @@
+package com.pharmacare.api.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.pharmacare.api.dto.ValidatedUserDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Caches the {@code /api/auth/validate} response per access token. An entry lives until the token expires
+ * or for {@code security.validation-cache.ttl}, whichever comes first, so profile changes show up within
+ * that TTL.
+ */
+@Component
+public class ValidatedUserCache {
+
+    private record Entry(ValidatedUserDto validatedUser, Instant expiresAt) {
+    }
+
+    private final Cache<String, Entry> entries;
+
+    public ValidatedUserCache(@Value("${security.validation-cache.ttl:60s}") Duration ttl,
+                              @Value("${security.validation-cache.max-size:10000}") long maxSize) {
+        long maxTtlNanos = ttl.toNanos();
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(String tokenHash, Entry entry, long currentTime) {
+                        long untilTokenExpiry = Duration.between(Instant.now(), entry.expiresAt()).toNanos();
+                        return Math.max(0, Math.min(maxTtlNanos, untilTokenExpiry));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String tokenHash, Entry entry, long currentTime, long currentDuration) {
+                        return expireAfterCreate(tokenHash, entry, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String tokenHash, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    public ValidatedUserDto get(String token) {
+        Entry entry = entries.getIfPresent(JwtTokenProvider.hashToken(token));
+        return entry != null ? entry.validatedUser() : null;
+    }
+
+    public void put(String token, Instant tokenExpiresAt, ValidatedUserDto validatedUser) {
+        entries.put(JwtTokenProvider.hashToken(token), new Entry(validatedUser, tokenExpiresAt));
+    }
+}
@@ -0,0 +1,16 @@
+package com.pharmacare.api.security;
+
+import java.time.Instant;
+
+/**
+ * The claims of an access token whose signature and expiry have been checked.
+ *
+ * @param family the refresh token family the token was issued under, or {@code null} for tokens issued
+ *               outside a refresh flow (such as OAuth2 logins)
+ */
+public record VerifiedToken(String subject, String family, Instant expiresAt) {
+
+    public boolean isExpired() {
+        return !expiresAt.isAfter(Instant.now());
+    }
+}
@@ -3,6 +3,7 @@ package com.pharmacare.api.security.oauth2;
 import com.pharmacare.api.exception.OAuth2AuthenticationProcessingException;
 import com.pharmacare.api.model.User;
 import com.pharmacare.api.repository.UserRepository;
+import com.pharmacare.api.security.UserPrincipalCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.InternalAuthenticationServiceException;
 import org.springframework.security.core.AuthenticationException;
@@ -20,6 +21,7 @@ import java.util.Optional;
 public class OAuth2UserService extends DefaultOAuth2UserService {
 
     private final UserRepository userRepository;
+    private final UserPrincipalCache userPrincipalCache;
 
     @Override
     public OAuth2User loadUser(OAuth2UserRequest userRequest) throws OAuth2AuthenticationException {
@@ -76,6 +78,8 @@ public class OAuth2UserService extends DefaultOAuth2UserService {
         existingUser.setLastName(oAuth2UserInfo.getLastName());
         existingUser.setImageUrl(oAuth2UserInfo.getImageUrl());
         
-        return userRepository.save(existingUser);
+        User updatedUser = userRepository.save(existingUser);
+        userPrincipalCache.evict(updatedUser.getEmail());
+        return updatedUser;
     }
 } 
\ No newline at end of file
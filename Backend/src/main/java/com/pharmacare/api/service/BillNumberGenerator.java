@@ -0,0 +1,12 @@
+package com.pharmacare.api.service;
+
+import com.pharmacare.api.model.Pharmacy;
+
+/**
+ * Produces the human-facing {@code billNumber} for a new bill. Implementations must never hand out the same
+ * number twice, since a duplicate aborts the whole checkout transaction on the unique index.
+ */
+public interface BillNumberGenerator {
+
+    String nextBillNumber(Pharmacy pharmacy);
+}
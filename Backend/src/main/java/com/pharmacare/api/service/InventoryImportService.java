@@ -0,0 +1,317 @@
+package com.pharmacare.api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pharmacare.api.dto.InventoryDto;
+import com.pharmacare.api.dto.InventoryImportResultDto;
+import com.pharmacare.api.model.Inventory;
+import com.pharmacare.api.model.Pharmacy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streams a wholesaler stock file into a pharmacy's inventory. Rows are read one at a time, validated, and
+ * upserted on (pharmacy, medicationName, batchNumber) in fixed-size JDBC batches, so memory use depends on
+ * the batch size and error cap rather than on the size of the file. Each batch commits on its own: a
+ * failed batch is reported row by row and does not undo rows imported before it.
+ */
+@Service
+@RequiredArgsConstructor
+public class InventoryImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryImportService.class);
+
+    private static final int BATCH_SIZE = 500;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final int MAX_TEXT_LENGTH = 255;
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO inventory (id, pharmacy_id, medication_name, manufacturer, batch_number, expiry_date, " +
+            "quantity, minimum_stock_level, cost_price, selling_price, active, medication_type, description, " +
+            "dosage_form, strength, storage_conditions, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, true, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (pharmacy_id, medication_name, batch_number) DO UPDATE SET " +
+            "manufacturer = EXCLUDED.manufacturer, expiry_date = EXCLUDED.expiry_date, " +
+            "quantity = EXCLUDED.quantity, minimum_stock_level = EXCLUDED.minimum_stock_level, " +
+            "cost_price = EXCLUDED.cost_price, selling_price = EXCLUDED.selling_price, active = true, " +
+            "medication_type = EXCLUDED.medication_type, description = EXCLUDED.description, " +
+            "dosage_form = EXCLUDED.dosage_form, strength = EXCLUDED.strength, " +
+            "storage_conditions = EXCLUDED.storage_conditions, updated_at = EXCLUDED.updated_at";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public enum ImportFormat {
+        CSV,
+        NDJSON
+    }
+
+    public InventoryImportResultDto importItems(Pharmacy pharmacy, InputStream body, ImportFormat format) throws IOException {
+        ImportRun run = new ImportRun(pharmacy.getId());
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+
+        String[] csvHeader = null;
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (format == ImportFormat.CSV && csvHeader == null) {
+                csvHeader = parseCsvLine(line).toArray(new String[0]);
+                continue;
+            }
+
+            run.processedRows++;
+            try {
+                InventoryDto row = format == ImportFormat.CSV
+                        ? parseCsvRow(csvHeader, line)
+                        : objectMapper.readValue(line, InventoryDto.class);
+                String error = validate(row);
+                if (error != null) {
+                    run.reject(lineNumber, error);
+                    continue;
+                }
+                run.add(lineNumber, row);
+            } catch (JsonProcessingException e) {
+                run.reject(lineNumber, "Malformed JSON: " + e.getOriginalMessage());
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                run.reject(lineNumber, e.getMessage());
+            }
+        }
+        run.flush();
+
+        logger.info("Inventory import for pharmacy {}: {} rows processed, {} imported, {} failed",
+                pharmacy.getId(), run.processedRows, run.importedRows, run.failedRows);
+
+        return InventoryImportResultDto.builder()
+                .processedRows(run.processedRows)
+                .importedRows(run.importedRows)
+                .failedRows(run.failedRows)
+                .errors(run.errors)
+                .errorsTruncated(run.failedRows > run.errors.size())
+                .build();
+    }
+
+    private InventoryDto parseCsvRow(String[] header, String line) {
+        List<String> values = parseCsvLine(line);
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < header.length && i < values.size(); i++) {
+            String value = values.get(i).trim();
+            if (!value.isEmpty()) {
+                fields.put(header[i].trim(), value);
+            }
+        }
+
+        return InventoryDto.builder()
+                .medicationName(fields.get("medicationName"))
+                .manufacturer(fields.get("manufacturer"))
+                .batchNumber(fields.get("batchNumber"))
+                .expiryDate(fields.containsKey("expiryDate") ? LocalDate.parse(fields.get("expiryDate")) : null)
+                .quantity(parseInteger(fields, "quantity"))
+                .minimumStockLevel(parseInteger(fields, "minimumStockLevel"))
+                .costPrice(parseDecimal(fields, "costPrice"))
+                .sellingPrice(parseDecimal(fields, "sellingPrice"))
+                .medicationType(fields.containsKey("medicationType")
+                        ? Inventory.MedicationType.valueOf(fields.get("medicationType").toUpperCase())
+                        : null)
+                .description(fields.get("description"))
+                .dosageForm(fields.get("dosageForm"))
+                .strength(fields.get("strength"))
+                .storageConditions(fields.get("storageConditions"))
+                .build();
+    }
+
+    private Integer parseInteger(Map<String, String> fields, String name) {
+        String value = fields.get(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " is not a whole number: " + value);
+        }
+    }
+
+    private BigDecimal parseDecimal(Map<String, String> fields, String name) {
+        String value = fields.get(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " is not a number: " + value);
+        }
+    }
+
+    /**
+     * Splits one CSV record, honouring double-quoted fields and doubled quotes inside them.
+     * Quoted fields may not span lines.
+     */
+    private List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    private String validate(InventoryDto row) {
+        if (isBlank(row.getMedicationName())) return "medicationName is required";
+        if (isBlank(row.getManufacturer())) return "manufacturer is required";
+        if (isBlank(row.getBatchNumber())) return "batchNumber is required";
+        if (row.getExpiryDate() == null) return "expiryDate is required";
+        if (row.getQuantity() == null || row.getQuantity() < 0) return "quantity must be zero or more";
+        if (row.getMinimumStockLevel() == null || row.getMinimumStockLevel() < 0) return "minimumStockLevel must be zero or more";
+        if (row.getCostPrice() == null || row.getCostPrice().signum() < 0) return "costPrice must be zero or more";
+        if (row.getSellingPrice() == null || row.getSellingPrice().signum() < 0) return "sellingPrice must be zero or more";
+        if (row.getMedicationType() == null) return "medicationType is required";
+        for (String text : new String[]{row.getMedicationName(), row.getManufacturer(), row.getBatchNumber(),
+                row.getDescription(), row.getDosageForm(), row.getStrength(), row.getStorageConditions()}) {
+            if (text != null && text.length() > MAX_TEXT_LENGTH) {
+                return "text fields cannot exceed " + MAX_TEXT_LENGTH + " characters";
+            }
+        }
+        return null;
+    }
+
+    private boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    /**
+     * Mutable state of one import: the pending batch and the running totals.
+     */
+    private class ImportRun {
+        private final Long pharmacyId;
+        private final List<Object[]> batchArgs = new ArrayList<>(BATCH_SIZE);
+        private final List<Long> batchLines = new ArrayList<>(BATCH_SIZE);
+        private final Set<String> batchKeys = new HashSet<>();
+        private final List<InventoryImportResultDto.RowError> errors = new ArrayList<>();
+        private long processedRows;
+        private long importedRows;
+        private long failedRows;
+        private long nextId;
+        private long lastReservedId = -1;
+
+        ImportRun(Long pharmacyId) {
+            this.pharmacyId = pharmacyId;
+        }
+
+        void add(long lineNumber, InventoryDto row) {
+            // A multi-row upsert may not touch the same key twice, so a repeated item starts a new batch
+            String key = row.getMedicationName() + '\n' + row.getBatchNumber();
+            if (batchKeys.contains(key)) {
+                flush();
+            }
+            batchKeys.add(key);
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            batchArgs.add(new Object[]{
+                    nextId(),
+                    pharmacyId,
+                    row.getMedicationName(),
+                    row.getManufacturer(),
+                    row.getBatchNumber(),
+                    Date.valueOf(row.getExpiryDate()),
+                    row.getQuantity(),
+                    row.getMinimumStockLevel(),
+                    row.getCostPrice(),
+                    row.getSellingPrice(),
+                    row.getMedicationType().name(),
+                    row.getDescription(),
+                    row.getDosageForm(),
+                    row.getStrength(),
+                    row.getStorageConditions(),
+                    now,
+                    now
+            });
+            batchLines.add(lineNumber);
+            if (batchArgs.size() >= BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (batchArgs.isEmpty()) {
+                return;
+            }
+            try {
+                jdbcTemplate.batchUpdate(UPSERT_SQL, batchArgs);
+                importedRows += batchArgs.size();
+            } catch (DataAccessException e) {
+                logger.warn("Inventory import batch for pharmacy {} failed: {}", pharmacyId, e.getMostSpecificCause().getMessage());
+                for (Long lineNumber : batchLines) {
+                    reject(lineNumber, "Batch rejected by database: " + e.getMostSpecificCause().getMessage());
+                }
+            }
+            batchArgs.clear();
+            batchLines.clear();
+            batchKeys.clear();
+        }
+
+        /**
+         * Hands out ids from a reserved block and reserves the next one with a single nextval when it runs
+         * out. Ids of rows that update an existing item instead are simply left unused.
+         */
+        private long nextId() {
+            if (nextId > lastReservedId) {
+                lastReservedId = jdbcTemplate.queryForObject("SELECT nextval('inventory_seq')", Long.class);
+                // Hibernate's pooled optimizer starts its first block at the sequence start, so ids below 1 are skipped
+                nextId = Math.max(1, lastReservedId - Inventory.ID_BLOCK_SIZE + 1);
+            }
+            return nextId++;
+        }
+
+        void reject(long lineNumber, String message) {
+            failedRows++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new InventoryImportResultDto.RowError(lineNumber, message));
+            }
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.pharmacare.api.service;
+
+import com.pharmacare.api.model.Inventory;
+import com.pharmacare.api.repository.InventoryRepository;
+import com.pharmacare.api.repository.InventoryRepository.InventoryStatsView;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the dashboard counters of each pharmacy in memory so that {@code /stats} and {@code /overview}
+ * do not aggregate the inventory table on every poll. Counters are loaded lazily with a single aggregate
+ * query and then adjusted by the before/after delta of every committed stock change. The expired and
+ * expiring-soon buckets depend on the current day, so counters are dropped when the date rolls over.
+ * <p>
+ * Every node keeps its own counters. The changes and invalidations of each committed transaction are
+ * published as one message on the Redis channel {@code inventory:stats}, and each node applies the changes
+ * made on the others to the pharmacies it has cached. Messages are sent from a background thread with a
+ * bounded queue, so a slow or unreachable Redis never holds up the request that made the change.
+ * <p>
+ * A change that commits while a pharmacy's counters are being loaded can be missed, a change published
+ * while Redis is unreachable or the queue is full is only seen by the node that made it, and writes that
+ * bypass this service
+ * are not seen at all; the periodic reconciliation recounts every cached pharmacy and replaces counters
+ * that have drifted.
+ */
+@Service
+@RequiredArgsConstructor
+public class InventoryStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryStatsService.class);
+
+    public static final int EXPIRY_THRESHOLD_DAYS = 30;
+
+    private static final String CHANNEL = "inventory:stats";
+    private static final String CHANGE = "change";
+    private static final String INVALIDATE = "invalidate";
+    private static final int PUBLISH_QUEUE_CAPACITY = 1000;
+
+    private final InventoryRepository inventoryRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ConcurrentMap<Long, Counters> counters = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor publisher;
+
+    @PostConstruct
+    public void start() {
+        publisher = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(PUBLISH_QUEUE_CAPACITY),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "inventory-stats-publisher");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        listenerContainer.addMessageListener(
+                (message, pattern) -> onMessage(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(CHANNEL));
+    }
+
+    @PreDestroy
+    public void stop() {
+        publisher.shutdown();
+    }
+
+    public PharmacyInventoryStats getStats(Long pharmacyId) {
+        LocalDate today = LocalDate.now();
+        Counters current = counters.get(pharmacyId);
+        if (current == null || !current.asOf.equals(today)) {
+            current = load(pharmacyId, today);
+            counters.put(pharmacyId, current);
+        }
+        return current.snapshot();
+    }
+
+    /**
+     * Applies the effect of one inventory row changing from {@code before} to {@code after} once the
+     * surrounding transaction commits. Pass {@code null} as {@code before} for a new row.
+     */
+    public void recordChange(Long pharmacyId, StockState before, StockState after) {
+        afterCommit(new Update(pharmacyId, false, before, after));
+    }
+
+    /**
+     * Drops the counters of a pharmacy after changes that are not tracked row by row, such as a bulk
+     * import. The next read recounts.
+     */
+    public void invalidate(Long pharmacyId) {
+        afterCommit(new Update(pharmacyId, true, null, null));
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.stats.reconcile-interval-ms:600000}",
+               initialDelayString = "${inventory.stats.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        LocalDate today = LocalDate.now();
+        counters.forEach((pharmacyId, cached) -> {
+            Counters recounted = load(pharmacyId, today);
+            if (cached.asOf.equals(today) && !cached.snapshot().equals(recounted.snapshot())) {
+                logger.warn("Inventory counters for pharmacy {} drifted: cached {}, recounted {}",
+                        pharmacyId, cached.snapshot(), recounted.snapshot());
+            }
+            counters.replace(pharmacyId, cached, recounted);
+        });
+    }
+
+    @Scheduled(cron = "${inventory.stats.rollover-cron:0 0 0 * * *}")
+    public void rollOverExpiry() {
+        LocalDate today = LocalDate.now();
+        counters.values().removeIf(current -> !current.asOf.equals(today));
+    }
+
+    private void apply(Update update) {
+        if (update.invalidate()) {
+            counters.remove(update.pharmacyId());
+            return;
+        }
+        Counters current = counters.get(update.pharmacyId());
+        if (current != null) {
+            current.apply(update.before(), update.after());
+        }
+    }
+
+    /**
+     * Applies the updates of one committed transaction locally and queues them for the other nodes as a
+     * single message: the node id, then one update per line.
+     */
+    private void commit(List<Update> updates) {
+        StringBuilder message = new StringBuilder(nodeId);
+        for (Update update : updates) {
+            apply(update);
+            message.append('\n').append(update.encode());
+        }
+        try {
+            publisher.execute(() -> publish(message.toString()));
+        } catch (RejectedExecutionException e) {
+            // Other nodes catch up with their next reconciliation
+            logger.warn("Inventory counter update queue is full, not publishing {} updates", updates.size());
+        }
+    }
+
+    private void publish(String message) {
+        try {
+            redisTemplate.convertAndSend(CHANNEL, message);
+        } catch (RuntimeException e) {
+            // Other nodes catch up with their next reconciliation
+            logger.warn("Could not publish inventory counter update: {}", e.getMessage());
+        }
+    }
+
+    private void onMessage(String message) {
+        String[] lines = message.split("\n");
+        if (nodeId.equals(lines[0])) {
+            return;
+        }
+        for (int i = 1; i < lines.length; i++) {
+            try {
+                apply(Update.decode(lines[i]));
+            } catch (RuntimeException e) {
+                logger.warn("Ignoring malformed inventory counter update: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static String encode(StockState state) {
+        if (state == null) {
+            return "-";
+        }
+        return state.active() + "," + state.quantity() + "," + state.minimumStockLevel() + "," + state.expiryDate();
+    }
+
+    private static StockState decode(String encoded) {
+        if ("-".equals(encoded)) {
+            return null;
+        }
+        String[] fields = encoded.split(",");
+        return new StockState(Boolean.parseBoolean(fields[0]), Integer.parseInt(fields[1]),
+                Integer.parseInt(fields[2]), LocalDate.parse(fields[3]));
+    }
+
+    private Counters load(Long pharmacyId, LocalDate today) {
+        LocalDate expiringBy = today.plusDays(EXPIRY_THRESHOLD_DAYS);
+        InventoryStatsView view = inventoryRepository.aggregateStats(pharmacyId, today, expiringBy);
+        return new Counters(today, expiringBy, view);
+    }
+
+    /**
+     * Collects the update into the current transaction's batch, which is committed once the transaction
+     * commits. Outside a transaction the update is committed straight away.
+     */
+    private void afterCommit(Update update) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            commit(List.of(update));
+            return;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingUpdates pending) {
+                pending.updates.add(update);
+                return;
+            }
+        }
+        PendingUpdates pending = new PendingUpdates();
+        pending.updates.add(update);
+        TransactionSynchronizationManager.registerSynchronization(pending);
+    }
+
+    private final class PendingUpdates implements TransactionSynchronization {
+
+        private final List<Update> updates = new ArrayList<>();
+
+        @Override
+        public void afterCommit() {
+            commit(updates);
+        }
+    }
+
+    /**
+     * One counter change, or an invalidation of a pharmacy's counters, in the form sent between nodes.
+     */
+    private record Update(Long pharmacyId, boolean invalidate, StockState before, StockState after) {
+
+        String encode() {
+            if (invalidate) {
+                return INVALIDATE + " " + pharmacyId;
+            }
+            return CHANGE + " " + pharmacyId + " " + InventoryStatsService.encode(before) + " "
+                    + InventoryStatsService.encode(after);
+        }
+
+        static Update decode(String line) {
+            String[] parts = line.split(" ");
+            Long pharmacyId = Long.valueOf(parts[1]);
+            if (INVALIDATE.equals(parts[0]) && parts.length == 2) {
+                return new Update(pharmacyId, true, null, null);
+            }
+            if (CHANGE.equals(parts[0]) && parts.length == 4) {
+                return new Update(pharmacyId, false, InventoryStatsService.decode(parts[2]),
+                        InventoryStatsService.decode(parts[3]));
+            }
+            throw new IllegalArgumentException("unknown update: " + line);
+        }
+    }
+
+    public record PharmacyInventoryStats(long totalItems,
+                                         long lowStockCount,
+                                         long outOfStockCount,
+                                         long expiredCount,
+                                         long expiringSoonCount) {
+    }
+
+    /**
+     * The fields of an inventory row that decide which counters it contributes to.
+     */
+    public record StockState(boolean active, int quantity, int minimumStockLevel, LocalDate expiryDate) {
+
+        public static StockState of(Inventory inventory) {
+            return new StockState(inventory.isActive(), inventory.getQuantity(),
+                    inventory.getMinimumStockLevel(), inventory.getExpiryDate());
+        }
+
+        public StockState withQuantity(int newQuantity) {
+            return new StockState(active, newQuantity, minimumStockLevel, expiryDate);
+        }
+    }
+
+    /**
+     * Mutable counters for one pharmacy and day. The buckets use the same filters as
+     * {@link InventoryRepository#aggregateStats}.
+     */
+    private static final class Counters {
+
+        private final LocalDate asOf;
+        private final LocalDate expiringBy;
+        private long totalItems;
+        private long lowStockCount;
+        private long outOfStockCount;
+        private long expiredCount;
+        private long expiringSoonCount;
+
+        Counters(LocalDate asOf, LocalDate expiringBy, InventoryStatsView view) {
+            this.asOf = asOf;
+            this.expiringBy = expiringBy;
+            this.totalItems = view.getTotalItems();
+            this.lowStockCount = view.getLowStockCount();
+            this.outOfStockCount = view.getOutOfStockCount();
+            this.expiredCount = view.getExpiredCount();
+            this.expiringSoonCount = view.getExpiringSoonCount();
+        }
+
+        synchronized void apply(StockState before, StockState after) {
+            if (before != null) {
+                add(before, -1);
+            }
+            if (after != null) {
+                add(after, 1);
+            }
+        }
+
+        private void add(StockState state, int sign) {
+            if (state.active()) {
+                totalItems += sign;
+            }
+            if (state.quantity() <= state.minimumStockLevel()) {
+                lowStockCount += sign;
+            }
+            if (state.active() && state.quantity() == 0) {
+                outOfStockCount += sign;
+            }
+            if (state.active() && state.expiryDate().isBefore(asOf)) {
+                expiredCount += sign;
+            }
+            if (!state.expiryDate().isBefore(asOf) && !state.expiryDate().isAfter(expiringBy)) {
+                expiringSoonCount += sign;
+            }
+        }
+
+        synchronized PharmacyInventoryStats snapshot() {
+            return new PharmacyInventoryStats(totalItems, lowStockCount, outOfStockCount, expiredCount, expiringSoonCount);
+        }
+    }
+}
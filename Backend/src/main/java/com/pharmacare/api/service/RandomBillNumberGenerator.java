@@ -0,0 +1,21 @@
+package com.pharmacare.api.service;
+
+import com.pharmacare.api.model.Pharmacy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Legacy format: the first eight hex digits of a random UUID. Kept for installations that cannot create
+ * sequences; collisions become likely once a pharmacy has issued tens of thousands of bills.
+ */
+@Component
+@ConditionalOnProperty(name = "billing.bill-number.strategy", havingValue = "random")
+public class RandomBillNumberGenerator implements BillNumberGenerator {
+
+    @Override
+    public String nextBillNumber(Pharmacy pharmacy) {
+        return "BILL-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+    }
+}
@@ -0,0 +1,194 @@
+package com.pharmacare.api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pharmacare.api.dto.CompleteRemindersRequestDto;
+import com.pharmacare.api.dto.CompleteRemindersResultDto;
+import com.pharmacare.api.exception.IdempotencyKeyReusedException;
+import com.pharmacare.api.reminder.ReminderEvent;
+import com.pharmacare.api.reminder.ReminderEventHub;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Completes many of a user's reminders at once, for clients replaying completions recorded offline. The
+ * whole batch is one {@code UPDATE} over the unnested (id, completedAt) pairs, restricted to the user's
+ * reminders that are still open, plus one ownership lookup to tell reminders completed before apart from
+ * unknown ids. Reminders completed before keep their original completion time, so replaying a batch
+ * changes nothing.
+ * <p>
+ * With an idempotency key the result is kept in Redis for {@code reminders.complete-batch.idempotency-ttl},
+ * and a retry with the same key and body gets it back without touching the database. Without Redis a retry
+ * runs the update again, which is equally safe, just not as cheap.
+ */
+@Service
+public class ReminderCompletionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReminderCompletionService.class);
+
+    private static final String KEY_PREFIX = "pharmacare:idempotency:reminders-complete:";
+
+    private static final String COMPLETE_SQL =
+            "UPDATE reminders r SET completed = true, completed_at = b.completed_at, updated_at = ? " +
+            "FROM unnest(?::bigint[], ?::timestamp[]) AS b(id, completed_at) " +
+            "WHERE r.id = b.id AND r.user_id = ? AND r.completed = false " +
+            "RETURNING r.id, r.reminder_time, r.completed_at";
+
+    private static final String OWNED_SQL = "SELECT id FROM reminders WHERE id = ANY(?::bigint[]) AND user_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final ReminderEventHub eventHub;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration idempotencyTtl;
+
+    public ReminderCompletionService(JdbcTemplate jdbcTemplate,
+                                     StringRedisTemplate redisTemplate,
+                                     ObjectMapper objectMapper,
+                                     ReminderEventHub eventHub,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${reminders.complete-batch.idempotency-ttl:24h}") Duration idempotencyTtl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.eventHub = eventHub;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.idempotencyTtl = idempotencyTtl;
+    }
+
+    /**
+     * @param idempotencyKey optional client-chosen key identifying this batch
+     * @throws IdempotencyKeyReusedException if the key was used before with a different batch
+     */
+    public Completion complete(Long userId, List<CompleteRemindersRequestDto.Item> items, String idempotencyKey) {
+        String redisKey = idempotencyKey != null ? KEY_PREFIX + userId + ":" + idempotencyKey : null;
+        String fingerprint = fingerprint(items);
+        if (redisKey != null) {
+            StoredResult stored = readStored(redisKey);
+            if (stored != null) {
+                if (!stored.fingerprint().equals(fingerprint)) {
+                    throw new IdempotencyKeyReusedException(idempotencyKey);
+                }
+                return new Completion(stored.result(), true);
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        // A client may list a reminder twice; the first completion time wins. Times in the future are
+        // clock skew and count as now.
+        Map<Long, LocalDateTime> completions = new LinkedHashMap<>();
+        for (CompleteRemindersRequestDto.Item item : items) {
+            LocalDateTime completedAt = item.getCompletedAt();
+            completions.putIfAbsent(item.getId(),
+                    completedAt == null || completedAt.isAfter(now) ? now : completedAt);
+        }
+        Long[] ids = completions.keySet().toArray(new Long[0]);
+        Timestamp[] times = completions.values().stream().map(Timestamp::valueOf).toArray(Timestamp[]::new);
+
+        List<CompletedReminder> completed = new ArrayList<>();
+        Set<Long> owned = transactionTemplate.execute(status -> {
+            completed.addAll(jdbcTemplate.query(COMPLETE_SQL,
+                    ps -> {
+                        ps.setTimestamp(1, Timestamp.valueOf(now));
+                        ps.setArray(2, ps.getConnection().createArrayOf("bigint", ids));
+                        ps.setArray(3, ps.getConnection().createArrayOf("timestamp", times));
+                        ps.setLong(4, userId);
+                    },
+                    (rs, rowNum) -> new CompletedReminder(rs.getLong(1),
+                            rs.getTimestamp(2).toLocalDateTime(),
+                            rs.getTimestamp(3).toLocalDateTime())));
+            return Set.copyOf(jdbcTemplate.query(OWNED_SQL,
+                    ps -> {
+                        ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids));
+                        ps.setLong(2, userId);
+                    },
+                    (rs, rowNum) -> rs.getLong(1)));
+        });
+
+        Set<Long> completedIds = completed.stream().map(CompletedReminder::id).collect(Collectors.toSet());
+        CompleteRemindersResultDto result = CompleteRemindersResultDto.builder()
+                .completed(completed.stream().map(CompletedReminder::id).toList())
+                .alreadyCompleted(completions.keySet().stream()
+                        .filter(id -> owned.contains(id) && !completedIds.contains(id))
+                        .toList())
+                .notFound(completions.keySet().stream().filter(id -> !owned.contains(id)).toList())
+                .build();
+        logger.debug("User {} completed {} of {} reminders in a batch", userId, completedIds.size(), ids.length);
+
+        eventHub.publishAll(completed.stream()
+                .map(reminder -> ReminderEvent.completed(userId, reminder.id(), reminder.reminderTime(), true,
+                        reminder.completedAt()))
+                .toList());
+        if (redisKey != null) {
+            store(redisKey, new StoredResult(fingerprint, result));
+        }
+        return new Completion(result, false);
+    }
+
+    private StoredResult readStored(String redisKey) {
+        try {
+            String json = redisTemplate.opsForValue().get(redisKey);
+            return json != null ? objectMapper.readValue(json, StoredResult.class) : null;
+        } catch (JsonProcessingException e) {
+            logger.warn("Ignoring unreadable idempotency record {}", redisKey);
+            return null;
+        } catch (RuntimeException e) {
+            logger.warn("Could not look up idempotency key, applying the batch: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void store(String redisKey, StoredResult stored) {
+        try {
+            // If a concurrent retry got here first its result stands; both batches applied the same changes
+            redisTemplate.opsForValue().setIfAbsent(redisKey, objectMapper.writeValueAsString(stored), idempotencyTtl);
+        } catch (JsonProcessingException | RuntimeException e) {
+            logger.warn("Could not store idempotency key {}: {}", redisKey, e.getMessage());
+        }
+    }
+
+    private static String fingerprint(List<CompleteRemindersRequestDto.Item> items) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (CompleteRemindersRequestDto.Item item : items) {
+                digest.update((item.getId() + "@" + item.getCompletedAt() + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * @param replayed whether the result was stored by an earlier request with the same idempotency key
+     */
+    public record Completion(CompleteRemindersResultDto result, boolean replayed) {
+    }
+
+    private record CompletedReminder(Long id, LocalDateTime reminderTime, LocalDateTime completedAt) {
+    }
+
+    record StoredResult(String fingerprint, CompleteRemindersResultDto result) {
+    }
+}
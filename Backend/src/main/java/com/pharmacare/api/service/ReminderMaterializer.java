@@ -0,0 +1,161 @@
+package com.pharmacare.api.service;
+
+import com.pharmacare.api.model.DoseSchedule;
+import com.pharmacare.api.model.Medication;
+import com.pharmacare.api.model.Reminder;
+import com.pharmacare.api.reminder.ReminderDispatchProperties;
+import com.pharmacare.api.reminder.ReminderDispatcher;
+import com.pharmacare.api.repository.MedicationRepository;
+import com.pharmacare.api.repository.ReminderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns medication dose schedules into reminder rows, but only for a rolling horizon: each scheduled
+ * medication has reminders up to {@code reminders.schedule.horizon} ahead, and a periodic job extends them
+ * as time passes. The reminders table therefore grows with the horizon rather than with the length of a
+ * treatment, while the dispatcher and the existing reminder endpoints keep working on plain rows.
+ * <p>
+ * Each medication is extended in its own transaction under a row lock, from its
+ * {@code scheduleMaterializedUntil} mark, so running the job on several nodes at once does not generate
+ * duplicates.
+ */
+@Service
+public class ReminderMaterializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReminderMaterializer.class);
+
+    private static final int PAGE_SIZE = 200;
+
+    private final MedicationRepository medicationRepository;
+    private final ReminderRepository reminderRepository;
+    private final ReminderDispatcher reminderDispatcher;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration horizon;
+    private final Duration lookahead;
+
+    public ReminderMaterializer(MedicationRepository medicationRepository,
+                                ReminderRepository reminderRepository,
+                                ReminderDispatcher reminderDispatcher,
+                                ReminderDispatchProperties dispatchProperties,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${reminders.schedule.horizon:7d}") Duration horizon) {
+        this.medicationRepository = medicationRepository;
+        this.reminderRepository = reminderRepository;
+        this.reminderDispatcher = reminderDispatcher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.horizon = horizon;
+        this.lookahead = dispatchProperties.getLookahead();
+    }
+
+    /**
+     * Regenerates the upcoming reminders of a medication after it was created or its schedule, dates or
+     * active flag changed. Reminders already completed or sent are kept.
+     */
+    public void rematerialize(Long medicationId) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Reminder> created = transactionTemplate.execute(status -> {
+            Medication medication = medicationRepository.findByIdForUpdate(medicationId).orElse(null);
+            if (medication == null) {
+                return List.of();
+            }
+            reminderRepository.deleteUpcomingFromSchedule(medicationId, now);
+            medication.setScheduleMaterializedUntil(null);
+            return extend(medication, now);
+        });
+        announce(created, now);
+    }
+
+    /**
+     * Extends every scheduled medication that has less than half the horizon generated.
+     */
+    @Scheduled(cron = "${reminders.schedule.extend-cron:0 15 * * * *}")
+    public void extendAll() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime threshold = now.plus(horizon.dividedBy(2));
+        int medications = 0;
+        int reminders = 0;
+        List<Long> ids;
+        long afterId = 0;
+        do {
+            ids = medicationRepository.findIdsToMaterialize(now.toLocalDate(), threshold, afterId,
+                    PageRequest.of(0, PAGE_SIZE));
+            for (Long id : ids) {
+                afterId = id;
+                try {
+                    List<Reminder> created = transactionTemplate.execute(status ->
+                            medicationRepository.findByIdForUpdate(id)
+                                    .map(medication -> extend(medication, now))
+                                    .orElse(List.of()));
+                    announce(created, now);
+                    medications++;
+                    reminders += created == null ? 0 : created.size();
+                } catch (RuntimeException e) {
+                    logger.error("Could not extend reminders of medication {}", id, e);
+                }
+            }
+        } while (ids.size() == PAGE_SIZE);
+        if (medications > 0) {
+            logger.info("Extended reminder schedules of {} medications with {} reminders", medications, reminders);
+        }
+    }
+
+    /**
+     * Generates reminders from the medication's mark (or now) up to the horizon. Must run in a
+     * transaction holding the medication's row lock.
+     */
+    private List<Reminder> extend(Medication medication, LocalDateTime now) {
+        DoseSchedule schedule = medication.getSchedule();
+        LocalDateTime until = now.plus(horizon);
+        LocalDateTime from = medication.getScheduleMaterializedUntil();
+        if (from == null || from.isBefore(now)) {
+            from = now;
+        }
+        if (schedule == null || !medication.isActive() || !until.isAfter(from)) {
+            return List.of();
+        }
+
+        List<Reminder> reminders = new ArrayList<>();
+        for (LocalDateTime time : schedule.occurrencesBetween(medication.getStartDate(), medication.getEndDate(), from, until)) {
+            Reminder reminder = new Reminder();
+            reminder.setMedication(medication);
+            reminder.setUser(medication.getUser());
+            reminder.setReminderTime(time);
+            reminder.setFromSchedule(true);
+            reminders.add(reminder);
+        }
+        // Inserted in JDBC batches (hibernate.jdbc.batch_size) thanks to the sequence-generated ids
+        List<Reminder> saved = reminderRepository.saveAll(reminders);
+        medication.setScheduleMaterializedUntil(until);
+        return saved;
+    }
+
+    /**
+     * Passes reminders due within the dispatcher's lookahead straight to it; later ones are loaded in
+     * their turn.
+     */
+    private void announce(List<Reminder> created, LocalDateTime now) {
+        if (created == null) {
+            return;
+        }
+        LocalDateTime soon = now.plus(lookahead);
+        for (Reminder reminder : created) {
+            if (reminder.getReminderTime().isAfter(soon)) {
+                break;
+            }
+            reminderDispatcher.schedule(reminder.getId(), reminder.getUser().getId(), reminder.getReminderTime());
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.pharmacare.api.service;
+
+import com.pharmacare.api.model.Pharmacy;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hi/lo bill number allocator backed by a PostgreSQL sequence. Each {@code nextval} reserves a block of
+ * {@code INCREMENT BY} numbers for this node, which are then handed out from memory, so only one bill in
+ * every block touches the database. Numbers are unique across nodes and increase monotonically per node.
+ * The sequence is shared by all pharmacies, so one pharmacy's bill numbers have gaps and, across nodes,
+ * are not issued in order.
+ * Format: {@code BILL-<pharmacyId>-<yyyyMMdd>-<seq>}.
+ * <p>
+ * Handing out a number is lock-free. Only the thread that finds the block used up takes a lock, and it
+ * uses a {@link ReentrantLock} rather than a monitor so that a virtual thread waiting on the database does
+ * not pin its carrier.
+ */
+@Component
+@ConditionalOnProperty(name = "billing.bill-number.strategy", havingValue = "sequence", matchIfMissing = true)
+public class SequenceBillNumberGenerator implements BillNumberGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(SequenceBillNumberGenerator.class);
+    private static final String SEQUENCE_NAME = "bill_number_seq";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int configuredBlockSize;
+    private final ReentrantLock refillLock = new ReentrantLock();
+
+    private long blockSize;
+    private volatile Block block = new Block(0, 0);
+
+    private volatile DatePrefix datePrefix = new DatePrefix(LocalDate.MIN, "");
+
+    public SequenceBillNumberGenerator(JdbcTemplate jdbcTemplate,
+                                       @Value("${billing.bill-number.block-size:100}") int configuredBlockSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.configuredBlockSize = configuredBlockSize;
+    }
+
+    @PostConstruct
+    public void init() {
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + SEQUENCE_NAME +
+                " START WITH 1 INCREMENT BY " + configuredBlockSize);
+        // An existing sequence keeps its original increment; blocks must match it or nodes would overlap
+        Long increment = jdbcTemplate.queryForObject(
+                "SELECT increment_by FROM pg_sequences WHERE sequencename = ?", Long.class, SEQUENCE_NAME);
+        blockSize = increment != null ? increment : configuredBlockSize;
+        if (blockSize != configuredBlockSize) {
+            logger.warn("{} increments by {}, ignoring configured block size {}", SEQUENCE_NAME, blockSize, configuredBlockSize);
+        }
+    }
+
+    @Override
+    public String nextBillNumber(Pharmacy pharmacy) {
+        long sequence = nextSequence();
+        return new StringBuilder(40)
+                .append("BILL-")
+                .append(pharmacy.getId())
+                .append('-')
+                .append(currentDatePrefix())
+                .append('-')
+                .append(sequence)
+                .toString();
+    }
+
+    private long nextSequence() {
+        while (true) {
+            Block current = block;
+            long sequence = current.take();
+            if (sequence >= 0) {
+                return sequence;
+            }
+            refillLock.lock();
+            try {
+                // Another thread may have fetched a new block while this one waited for the lock
+                if (block == current) {
+                    Long blockStart = jdbcTemplate.queryForObject("SELECT nextval('" + SEQUENCE_NAME + "')", Long.class);
+                    block = new Block(blockStart, blockStart + blockSize);
+                }
+            } finally {
+                refillLock.unlock();
+            }
+        }
+    }
+
+    private String currentDatePrefix() {
+        LocalDate today = LocalDate.now();
+        DatePrefix prefix = datePrefix;
+        if (!prefix.date().equals(today)) {
+            prefix = new DatePrefix(today, today.format(DateTimeFormatter.BASIC_ISO_DATE));
+            datePrefix = prefix;
+        }
+        return prefix.formatted();
+    }
+
+    private record DatePrefix(LocalDate date, String formatted) {
+    }
+
+    private static final class Block {
+
+        private final AtomicLong next;
+        private final long end;
+
+        Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+
+        /**
+         * @return the next number of the block, or {@code -1} once it is used up
+         */
+        long take() {
+            long sequence = next.getAndIncrement();
+            return sequence < end ? sequence : -1;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.pharmacare.api.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of a request through {@link CorsFilter} for the common cases, against the same request
+ * passed straight to the chain. Run as described in the README.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class CorsFilterBenchmark {
+
+    private static final FilterChain CHAIN = (request, response) -> {
+    };
+
+    private CorsFilter filter;
+
+    @Setup
+    public void createFilter() {
+        filter = new CorsFilter("http://localhost:5173,https://pharmacaree.live,https://*.pharmacaree.live",
+                "GET,POST,PUT,DELETE,OPTIONS", "Authorization,Content-Type,X-Requested-With,Accept,Origin",
+                "Authorization", true, 3600);
+    }
+
+    @Benchmark
+    public MockHttpServletResponse withoutFilter() throws IOException, ServletException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        CHAIN.doFilter(request("GET", "https://pharmacaree.live"), response);
+        return response;
+    }
+
+    @Benchmark
+    public MockHttpServletResponse exactOrigin() throws IOException, ServletException {
+        return filter(request("GET", "https://pharmacaree.live"));
+    }
+
+    @Benchmark
+    public MockHttpServletResponse wildcardOrigin() throws IOException, ServletException {
+        return filter(request("GET", "https://admin.pharmacaree.live"));
+    }
+
+    @Benchmark
+    public MockHttpServletResponse rejectedOrigin() throws IOException, ServletException {
+        return filter(request("GET", "https://example.com"));
+    }
+
+    @Benchmark
+    public MockHttpServletResponse preflight() throws IOException, ServletException {
+        MockHttpServletRequest request = request("OPTIONS", "https://pharmacaree.live");
+        request.addHeader(HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD, "POST");
+        return filter(request);
+    }
+
+    private MockHttpServletResponse filter(MockHttpServletRequest request) throws IOException, ServletException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, CHAIN);
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String method, String origin) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/api/inventories/1/items");
+        request.addHeader(HttpHeaders.ORIGIN, origin);
+        return request;
+    }
+}
@@ -0,0 +1,160 @@
+package com.pharmacare.api.model;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DoseScheduleTest {
+
+    // A Monday
+    private static final LocalDate JAN_1 = LocalDate.of(2024, 1, 1);
+
+    private static ValidatorFactory validatorFactory;
+    private static Validator validator;
+
+    @BeforeAll
+    static void createValidator() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+    }
+
+    @AfterAll
+    static void closeValidator() {
+        validatorFactory.close();
+    }
+
+    @Test
+    void dailyIntervalCountsFromTheStartDateNotTheWindow() {
+        DoseSchedule schedule = schedule(DoseSchedule.Recurrence.DAILY, 2, null, LocalTime.of(20, 0), LocalTime.of(8, 0));
+
+        assertEquals(List.of(
+                        JAN_1.atTime(8, 0), JAN_1.atTime(20, 0),
+                        day(3).atTime(8, 0), day(3).atTime(20, 0),
+                        day(5).atTime(8, 0), day(5).atTime(20, 0)),
+                schedule.occurrencesBetween(JAN_1, null, JAN_1.atStartOfDay(), day(5).atTime(23, 59)));
+        assertEquals(List.of(day(3).atTime(8, 0), day(3).atTime(20, 0)),
+                schedule.occurrencesBetween(JAN_1, null, day(2).atStartOfDay(), day(4).atTime(23, 59)));
+    }
+
+    @Test
+    void weeklyIntervalIsAnchoredAtTheWeekOfTheStartDate() {
+        DoseSchedule schedule = schedule(DoseSchedule.Recurrence.WEEKLY, 2,
+                EnumSet.of(DayOfWeek.MONDAY, DayOfWeek.THURSDAY), LocalTime.of(9, 0));
+        // Starts on Wednesday the 3rd: the Monday of that week is before the start, the next week is skipped
+        LocalDate start = day(3);
+
+        assertEquals(List.of(day(4).atTime(9, 0), day(15).atTime(9, 0), day(18).atTime(9, 0)),
+                schedule.occurrencesBetween(start, null, JAN_1.minusDays(1).atStartOfDay(), day(22).atTime(23, 59)));
+    }
+
+    @Test
+    void weeklyWithoutDaysUsesTheWeekdayOfTheStartDate() {
+        DoseSchedule schedule = schedule(DoseSchedule.Recurrence.WEEKLY, null, null, LocalTime.of(9, 0));
+
+        // The lower bound is exclusive, so the dose at the very start of the window is not repeated
+        assertEquals(List.of(day(10).atTime(9, 0), day(17).atTime(9, 0)),
+                schedule.occurrencesBetween(day(3), null, day(3).atTime(9, 0), day(17).atTime(9, 0)));
+    }
+
+    @Test
+    void stopsAfterTheEndDate() {
+        DoseSchedule schedule = schedule(DoseSchedule.Recurrence.DAILY, null, null, LocalTime.of(8, 0));
+
+        assertEquals(List.of(JAN_1.atTime(8, 0), day(2).atTime(8, 0), day(3).atTime(8, 0)),
+                schedule.occurrencesBetween(JAN_1, day(3), JAN_1.minusDays(1).atStartOfDay(), day(10).atStartOfDay()));
+        assertNull(schedule.nextOccurrence(JAN_1, day(3), day(3).atTime(8, 0)));
+        assertEquals(JAN_1.atTime(8, 0), schedule.nextOccurrence(JAN_1, day(3), LocalDateTime.of(2023, 12, 1, 0, 0)));
+    }
+
+    @Test
+    void nextOccurrenceLooksOneWholePeriodAhead() {
+        DoseSchedule schedule = schedule(DoseSchedule.Recurrence.WEEKLY, 3, EnumSet.of(DayOfWeek.MONDAY), LocalTime.of(9, 0));
+
+        assertEquals(day(22).atTime(9, 0), schedule.nextOccurrence(JAN_1, null, JAN_1.atTime(9, 0)));
+    }
+
+    @Test
+    void keepsTimesToTheMinuteWithoutDuplicates() {
+        DoseSchedule schedule = new DoseSchedule();
+        schedule.setTimes(List.of(LocalTime.of(20, 0), LocalTime.of(8, 0, 30), LocalTime.of(8, 0)));
+
+        assertEquals(List.of(LocalTime.of(8, 0), LocalTime.of(20, 0)), schedule.getTimes());
+    }
+
+    @Test
+    void acceptsAValidSchedule() {
+        DoseSchedule schedule = schedule(DoseSchedule.Recurrence.WEEKLY, 2, EnumSet.of(DayOfWeek.FRIDAY), LocalTime.of(9, 0));
+
+        assertTrue(validator.validate(schedule).isEmpty());
+    }
+
+    @Test
+    void rejectsAnIntervalBelowOne() {
+        DoseSchedule schedule = schedule(DoseSchedule.Recurrence.DAILY, 0, null, LocalTime.of(9, 0));
+
+        assertViolation(schedule, "interval");
+    }
+
+    @Test
+    void rejectsDaysOfWeekOnADailySchedule() {
+        DoseSchedule schedule = schedule(DoseSchedule.Recurrence.DAILY, null, EnumSet.of(DayOfWeek.MONDAY), LocalTime.of(9, 0));
+
+        assertViolation(schedule, "daysOfWeekAllowed");
+    }
+
+    @Test
+    void rejectsTooManyTimes() {
+        List<LocalTime> times = new ArrayList<>();
+        for (int minute = 0; minute <= DoseSchedule.MAX_TIMES; minute++) {
+            times.add(LocalTime.of(0, minute));
+        }
+        DoseSchedule schedule = schedule(DoseSchedule.Recurrence.DAILY, null, null);
+        schedule.setTimes(times);
+
+        assertViolation(schedule, "times");
+    }
+
+    @Test
+    void rejectsARecurrenceWithoutTimes() {
+        DoseSchedule schedule = schedule(DoseSchedule.Recurrence.DAILY, null, null);
+
+        assertViolation(schedule, "complete");
+    }
+
+    private void assertViolation(DoseSchedule schedule, String property) {
+        Set<ConstraintViolation<DoseSchedule>> violations = validator.validate(schedule);
+        assertEquals(1, violations.size(), violations.toString());
+        assertEquals(property, violations.iterator().next().getPropertyPath().toString());
+    }
+
+    private static DoseSchedule schedule(DoseSchedule.Recurrence recurrence, Integer interval,
+                                         Set<DayOfWeek> daysOfWeek, LocalTime... times) {
+        DoseSchedule schedule = new DoseSchedule();
+        schedule.setRecurrence(recurrence);
+        schedule.setInterval(interval);
+        schedule.setDaysOfWeek(daysOfWeek);
+        schedule.setTimes(List.of(times));
+        return schedule;
+    }
+
+    private static LocalDate day(int dayOfJanuary) {
+        return LocalDate.of(2024, 1, dayOfJanuary);
+    }
+}
@@ -0,0 +1,197 @@
+package com.pharmacare.api.reminder;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two lease managers sharing one PostgreSQL, as two backend nodes would. Skipped when Docker is not
+ * available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ShardLeaseManagerTest {
+
+    private static final int SHARDS = 8;
+    private static final int USERS = 40;
+    private static final int REMINDERS_PER_USER = 5;
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    private static JdbcTemplate jdbcTemplate;
+
+    private final ReminderDispatchProperties properties = new ReminderDispatchProperties();
+
+    private ShardLeaseManager first;
+    private ShardLeaseManager second;
+
+    @BeforeAll
+    static void createSchema() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword()));
+        jdbcTemplate.execute("CREATE TABLE users (id bigint PRIMARY KEY, email varchar(100), first_name varchar(100))");
+        jdbcTemplate.execute("CREATE TABLE medications (id bigint PRIMARY KEY, name varchar(100), dosage varchar(100))");
+        jdbcTemplate.execute("CREATE TABLE reminders (id bigint PRIMARY KEY, user_id bigint NOT NULL, " +
+                "medication_id bigint NOT NULL, reminder_time timestamp NOT NULL, notes varchar(255), " +
+                "completed boolean NOT NULL DEFAULT false, notified_at timestamp, claimed_until timestamp)");
+    }
+
+    @BeforeEach
+    void startNodes() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS reminder_shard_leases, reminder_dispatch_nodes");
+        jdbcTemplate.update("TRUNCATE reminders, medications, users");
+        properties.setShards(SHARDS);
+        first = new ShardLeaseManager(jdbcTemplate, properties);
+        second = new ShardLeaseManager(jdbcTemplate, properties);
+        first.init();
+        second.init();
+    }
+
+    @Test
+    void splitsTheShardsBetweenTwoNodes() {
+        // The first node takes every shard before the second registers, then sheds its surplus
+        Set<Integer> firstShards = first.heartbeat();
+        assertEquals(SHARDS, firstShards.size());
+        Set<Integer> secondShards = second.heartbeat();
+        assertTrue(secondShards.isEmpty());
+
+        firstShards = first.heartbeat();
+        secondShards = second.heartbeat();
+
+        assertEquals(SHARDS / 2, firstShards.size());
+        assertEquals(SHARDS / 2, secondShards.size());
+        Set<Integer> all = new HashSet<>(firstShards);
+        all.addAll(secondShards);
+        assertEquals(IntStream.range(0, SHARDS).boxed().collect(Collectors.toSet()), all);
+
+        // Stable once balanced
+        assertEquals(firstShards, first.heartbeat());
+        assertEquals(secondShards, second.heartbeat());
+    }
+
+    @Test
+    void takesOverTheShardsOfANodeThatLeaves() {
+        first.heartbeat();
+        second.heartbeat();
+        first.heartbeat();
+        second.heartbeat();
+
+        second.releaseAll();
+
+        assertEquals(SHARDS, first.heartbeat().size());
+    }
+
+    @Test
+    void claimsEachReminderOnExactlyOneNode() throws Exception {
+        first.heartbeat();
+        second.heartbeat();
+        Set<Integer> firstShards = first.heartbeat();
+        Set<Integer> secondShards = second.heartbeat();
+        List<Long> ids = insertDueReminders();
+        ReminderDispatchStore store = new ReminderDispatchStore(jdbcTemplate, properties);
+
+        // Both nodes try to claim every reminder, several times over, at the same moment
+        List<Set<Long>> claims = claimConcurrently(store, ids, 4);
+        Set<Long> claimedByFirst = claims.get(0);
+        Set<Long> claimedBySecond = claims.get(1);
+
+        Set<Long> claimed = new HashSet<>(claimedByFirst);
+        claimed.addAll(claimedBySecond);
+        assertEquals(ids.size(), claimedByFirst.size() + claimedBySecond.size());
+        assertEquals(new HashSet<>(ids), claimed);
+        assertTrue(claimedByFirst.stream().allMatch(id -> firstShards.contains(shardOfReminder(id))));
+        assertTrue(claimedBySecond.stream().allMatch(id -> secondShards.contains(shardOfReminder(id))));
+    }
+
+    @Test
+    void claimsALapsedClaimAgain() {
+        first.heartbeat();
+        List<Long> ids = insertDueReminders();
+        ReminderDispatchStore store = new ReminderDispatchStore(jdbcTemplate, properties);
+        LocalDateTime now = LocalDateTime.now();
+
+        assertEquals(ids.size(), store.claim(ids, now, now, now.plusSeconds(1), first.getNodeId()).size());
+        assertTrue(store.claim(ids, now, now, now.plusMinutes(5), first.getNodeId()).isEmpty());
+
+        LocalDateTime later = now.plusSeconds(2);
+        assertEquals(ids.size(), store.claim(ids, later, later, later.plusMinutes(5), first.getNodeId()).size());
+    }
+
+    private List<Set<Long>> claimConcurrently(ReminderDispatchStore store, List<Long> ids, int rounds) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2 * rounds);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            LocalDateTime now = LocalDateTime.now();
+            List<Future<List<ReminderNotification>>> firstClaims = new ArrayList<>();
+            List<Future<List<ReminderNotification>>> secondClaims = new ArrayList<>();
+            for (int i = 0; i < rounds; i++) {
+                firstClaims.add(executor.submit(() -> {
+                    start.await();
+                    return store.claim(ids, now, now, now.plusMinutes(5), first.getNodeId());
+                }));
+                secondClaims.add(executor.submit(() -> {
+                    start.await();
+                    return store.claim(ids, now, now, now.plusMinutes(5), second.getNodeId());
+                }));
+            }
+            start.countDown();
+            return List.of(collectIds(firstClaims), collectIds(secondClaims));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Set<Long> collectIds(List<Future<List<ReminderNotification>>> claims) throws Exception {
+        Set<Long> ids = new HashSet<>();
+        for (Future<List<ReminderNotification>> claim : claims) {
+            for (ReminderNotification notification : claim.get(30, TimeUnit.SECONDS)) {
+                assertTrue(ids.add(notification.reminderId()), "claimed twice: " + notification.reminderId());
+            }
+        }
+        return ids;
+    }
+
+    private List<Long> insertDueReminders() {
+        jdbcTemplate.update("INSERT INTO medications (id, name, dosage) VALUES (1, 'Metformin', '500mg')");
+        Timestamp due = Timestamp.valueOf(LocalDateTime.now().minusMinutes(1));
+        List<Long> ids = new ArrayList<>();
+        long id = 1;
+        for (long userId = 1; userId <= USERS; userId++) {
+            jdbcTemplate.update("INSERT INTO users (id, email, first_name) VALUES (?, ?, 'Test')",
+                    userId, "user" + userId + "@example.com");
+            for (int i = 0; i < REMINDERS_PER_USER; i++, id++) {
+                jdbcTemplate.update("INSERT INTO reminders (id, user_id, medication_id, reminder_time) VALUES (?, ?, 1, ?)",
+                        id, userId, due);
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    private static int shardOfReminder(long reminderId) {
+        long userId = (reminderId - 1) / REMINDERS_PER_USER + 1;
+        return ShardLeaseManager.shardOf(userId, SHARDS);
+    }
+}
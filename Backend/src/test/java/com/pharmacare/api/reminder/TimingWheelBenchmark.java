@@ -0,0 +1,71 @@
+package com.pharmacare.api.reminder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules a day of reminders with the dispatcher's wheel dimensions and fires them,
+ * against a priority queue polled the same way. Run as described in the README.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimingWheelBenchmark {
+
+    private static final long TICK_MS = 1_000;
+    private static final long DAY_MS = 24 * 60 * 60 * 1_000L;
+
+    @Param({"10000", "100000"})
+    int reminders;
+
+    private long[] deadlines;
+
+    @Setup(Level.Trial)
+    public void createDeadlines() {
+        Random random = new Random(7);
+        deadlines = new long[reminders];
+        for (int i = 0; i < reminders; i++) {
+            deadlines[i] = TICK_MS + (long) (random.nextDouble() * (DAY_MS - TICK_MS));
+        }
+    }
+
+    @Benchmark
+    public void timingWheel(Blackhole blackhole) {
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK_MS, 64, 3, 0);
+        for (long deadline : deadlines) {
+            wheel.add(deadline, deadline);
+        }
+        wheel.advance(DAY_MS, blackhole::consume);
+    }
+
+    @Benchmark
+    public void priorityQueue(Blackhole blackhole) {
+        PriorityQueue<Long> queue = new PriorityQueue<>();
+        for (long deadline : deadlines) {
+            queue.add(deadline);
+        }
+        for (long now = 0; now <= DAY_MS; now += TICK_MS) {
+            while (!queue.isEmpty() && queue.peek() <= now) {
+                blackhole.consume(queue.poll());
+            }
+        }
+    }
+}
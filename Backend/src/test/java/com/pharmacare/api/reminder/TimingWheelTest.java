@@ -0,0 +1,122 @@
+package com.pharmacare.api.reminder;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class TimingWheelTest {
+
+    private static final long TICK = 10;
+    private static final int WHEEL_SIZE = 8;
+    private static final int LEVELS = 3;
+
+    @Test
+    void rejectsDeadlinesInTheCurrentTickOrEarlier() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, WHEEL_SIZE, LEVELS, 1_005);
+
+        assertFalse(wheel.add(1_000, "start of current tick"));
+        assertFalse(wheel.add(1_009, "end of current tick"));
+        assertFalse(wheel.add(500, "past"));
+        assertTrue(wheel.add(1_010, "next tick"));
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    void firesInTheTickOfTheDeadline() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, WHEEL_SIZE, LEVELS, 1_000);
+        List<String> fired = new ArrayList<>();
+        wheel.add(1_055, "reminder");
+
+        wheel.advance(1_049, fired::add);
+        assertTrue(fired.isEmpty());
+
+        wheel.advance(1_050, fired::add);
+        assertEquals(List.of("reminder"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cascadesEntriesFromUpperLevels() {
+        // Level 1 slots span 80 ms and level 2 slots 640 ms, so these start above level 0
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK, WHEEL_SIZE, LEVELS, 0);
+        long[] deadlines = {85, 639, 640, 1_290, 5_000};
+        for (long deadline : deadlines) {
+            assertTrue(wheel.add(deadline, deadline));
+        }
+
+        Map<Long, Long> firedAt = new HashMap<>();
+        for (long now = 0; now <= 6_000; now += TICK) {
+            long current = now;
+            wheel.advance(now, deadline -> firedAt.put(deadline, current));
+        }
+
+        for (long deadline : deadlines) {
+            assertEquals(tickStart(deadline), firedAt.get(deadline), "deadline " + deadline);
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void rejectsDeadlinesBeyondTheHorizon() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, WHEEL_SIZE, LEVELS, 0);
+
+        assertEquals(TICK * WHEEL_SIZE * WHEEL_SIZE * WHEEL_SIZE - TICK, wheel.horizonMs());
+        assertTrue(wheel.add(wheel.horizonMs(), "last slot"));
+        assertThrows(IllegalArgumentException.class, () -> wheel.add(wheel.horizonMs() + TICK, "too far"));
+    }
+
+    @Test
+    void firesEveryEntryOnceAtItsTickAcrossManyWrapArounds() {
+        Random random = new Random(42);
+        long start = 1_700_000_000_123L;
+        TimingWheel<Integer> wheel = new TimingWheel<>(TICK, WHEEL_SIZE, LEVELS, start);
+        long horizon = wheel.horizonMs();
+
+        Map<Integer, Long> deadlines = new HashMap<>();
+        Map<Integer, Long> firedAt = new HashMap<>();
+        long previous = start;
+        long now = start;
+        int next = 0;
+        // Runs for about twenty times the horizon, so every level wraps around repeatedly
+        while (now < start + 20 * horizon) {
+            for (int i = random.nextInt(20); i > 0; i--) {
+                long deadline = now + random.nextInt((int) horizon);
+                if (wheel.add(deadline, next)) {
+                    deadlines.put(next, deadline);
+                }
+                next++;
+            }
+            previous = now;
+            now += 1 + random.nextInt((int) (3 * TICK));
+            long advancedTo = now;
+            long advancedFrom = previous;
+            wheel.advance(now, id -> {
+                if (firedAt.put(id, advancedTo) != null) {
+                    fail("entry " + id + " fired twice");
+                }
+                long due = tickStart(deadlines.get(id));
+                if (due > advancedTo || due <= advancedFrom - advancedFrom % TICK) {
+                    fail("entry " + id + " due at " + due + " fired while advancing " + advancedFrom + " to " + advancedTo);
+                }
+            });
+        }
+        wheel.advance(now + horizon + TICK, id -> firedAt.put(id, Long.MAX_VALUE));
+
+        assertEquals(deadlines.keySet(), firedAt.keySet());
+        assertEquals(0, wheel.size());
+    }
+
+    private static long tickStart(long deadline) {
+        return deadline - Math.floorMod(deadline, TICK);
+    }
+}
@@ -0,0 +1,125 @@
+package com.pharmacare.api.repository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserts a checkout's worth of bill items per transaction the way Hibernate does for each id strategy:
+ * one round trip per row with IDENTITY ids, or a pooled sequence with batched, rewritten inserts. Needs
+ * Docker for the PostgreSQL container. Run as described in the README.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdGenerationBenchmark {
+
+    // Matches the allocationSize of the entities and hibernate.jdbc.batch_size
+    private static final int BLOCK_SIZE = 50;
+
+    @Param({"5", "50"})
+    int rows;
+
+    private PostgreSQLContainer<?> postgres;
+    private Connection connection;
+    private long nextId;
+    private long blockEnd;
+
+    @Setup(Level.Trial)
+    public void startDatabase() throws SQLException {
+        postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+        postgres.start();
+        String url = postgres.getJdbcUrl();
+        connection = DriverManager.getConnection(url + (url.contains("?") ? "&" : "?") + "reWriteBatchedInserts=true",
+                postgres.getUsername(), postgres.getPassword());
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE items_identity (id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                    "bill_id bigint NOT NULL, quantity integer NOT NULL, price numeric(10, 2) NOT NULL)");
+            statement.execute("CREATE TABLE items_pooled (id bigint PRIMARY KEY, " +
+                    "bill_id bigint NOT NULL, quantity integer NOT NULL, price numeric(10, 2) NOT NULL)");
+            statement.execute("CREATE SEQUENCE items_pooled_seq START WITH " + BLOCK_SIZE + " INCREMENT BY " + BLOCK_SIZE);
+        }
+        connection.setAutoCommit(false);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopDatabase() throws SQLException {
+        connection.close();
+        postgres.stop();
+    }
+
+    @Benchmark
+    public long identity() throws SQLException {
+        long lastId = 0;
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO items_identity (bill_id, quantity, price) VALUES (?, ?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < rows; i++) {
+                insert.setLong(1, 1);
+                insert.setInt(2, i + 1);
+                insert.setBigDecimal(3, BigDecimal.TEN);
+                insert.executeUpdate();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    keys.next();
+                    lastId = keys.getLong(1);
+                }
+            }
+        }
+        connection.commit();
+        return lastId;
+    }
+
+    @Benchmark
+    public long pooledSequence() throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO items_pooled (id, bill_id, quantity, price) VALUES (?, ?, ?, ?)")) {
+            for (int i = 0; i < rows; i++) {
+                insert.setLong(1, nextId());
+                insert.setLong(2, 1);
+                insert.setInt(3, i + 1);
+                insert.setBigDecimal(4, BigDecimal.TEN);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        return nextId;
+    }
+
+    /**
+     * Hibernate's pooled optimizer: one {@code nextval} hands out the {@code BLOCK_SIZE} ids up to and including it.
+     */
+    private long nextId() throws SQLException {
+        if (nextId >= blockEnd) {
+            try (Statement statement = connection.createStatement();
+                 ResultSet result = statement.executeQuery("SELECT nextval('items_pooled_seq')")) {
+                result.next();
+                blockEnd = result.getLong(1) + 1;
+                nextId = blockEnd - BLOCK_SIZE;
+            }
+        }
+        return nextId++;
+    }
+}
@@ -0,0 +1,165 @@
+package com.pharmacare.api.repository;
+
+import com.pharmacare.api.model.Inventory;
+import com.pharmacare.api.model.Pharmacy;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the stock decrement and the batch upsert against a real PostgreSQL so that row locking and
+ * {@code ON CONFLICT} behave as in production. Skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class InventoryRepositoryImplTest {
+
+    private static final int BUYERS = 32;
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    private static JdbcTemplate jdbcTemplate;
+
+    private InventoryRepositoryImpl repository;
+
+    @BeforeAll
+    static void createSchema() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword()));
+        jdbcTemplate.execute("CREATE SEQUENCE inventory_seq START WITH 1 INCREMENT BY " + Inventory.ID_BLOCK_SIZE);
+        jdbcTemplate.execute("CREATE TABLE inventory (id bigint PRIMARY KEY, pharmacy_id bigint, " +
+                "medication_name varchar(255), manufacturer varchar(255), batch_number varchar(255), " +
+                "expiry_date date, quantity integer NOT NULL, minimum_stock_level integer, " +
+                "cost_price numeric(10, 2), selling_price numeric(10, 2), active boolean, " +
+                "medication_type varchar(255), description varchar(255), dosage_form varchar(255), " +
+                "strength varchar(255), storage_conditions varchar(255), created_at timestamp, " +
+                "updated_at timestamp, UNIQUE (pharmacy_id, medication_name, batch_number))");
+    }
+
+    @BeforeEach
+    void resetStock() {
+        jdbcTemplate.update("DELETE FROM inventory");
+        jdbcTemplate.update("INSERT INTO inventory (id, quantity) VALUES (1, 5), (2, 100)");
+        // Keeps upserted ids clear of the fixed rows above
+        jdbcTemplate.execute("ALTER SEQUENCE inventory_seq RESTART WITH 1000");
+        repository = new InventoryRepositoryImpl(jdbcTemplate);
+    }
+
+    @Test
+    void concurrentBuyersNeverOversellTheLastUnits() throws Exception {
+        List<List<Long>> results = buyConcurrently(Map.of(1L, 1));
+
+        long sold = results.stream().filter(List::isEmpty).count();
+        assertEquals(5, sold);
+        assertEquals(0, quantityOf(1L));
+    }
+
+    @Test
+    void rejectsOnlyTheItemsThatRanOut() throws Exception {
+        List<List<Long>> results = buyConcurrently(Map.of(1L, 2, 2L, 3));
+
+        long withFirstItem = results.stream().filter(rejected -> !rejected.contains(1L)).count();
+        assertEquals(2, withFirstItem);
+        assertEquals(1, quantityOf(1L));
+        assertEquals(100 - 3 * BUYERS, quantityOf(2L));
+        assertTrue(results.stream().noneMatch(rejected -> rejected.contains(2L)));
+    }
+
+    @Test
+    void insertsANewBatch() {
+        Optional<Long> id = repository.insertOrReactivate(item("B1", 40));
+
+        assertTrue(id.isPresent());
+        assertEquals(40, quantityOf(id.get()));
+        assertTrue(isActive(id.get()));
+    }
+
+    @Test
+    void reactivatesADeletedBatchInPlace() {
+        Long deletedId = repository.insertOrReactivate(item("B1", 40)).orElseThrow();
+        jdbcTemplate.update("UPDATE inventory SET active = false WHERE id = ?", deletedId);
+
+        Optional<Long> id = repository.insertOrReactivate(item("B1", 15));
+
+        assertEquals(Optional.of(deletedId), id);
+        assertEquals(15, quantityOf(deletedId));
+        assertTrue(isActive(deletedId));
+    }
+
+    @Test
+    void leavesAnActiveBatchAlone() {
+        Long activeId = repository.insertOrReactivate(item("B1", 40)).orElseThrow();
+
+        assertEquals(Optional.empty(), repository.insertOrReactivate(item("B1", 15)));
+        assertEquals(40, quantityOf(activeId));
+        assertNotEquals(activeId, repository.insertOrReactivate(item("B2", 15)).orElseThrow());
+    }
+
+    private Inventory item(String batchNumber, int quantity) {
+        Pharmacy pharmacy = new Pharmacy();
+        pharmacy.setId(7L);
+        return Inventory.builder()
+                .pharmacy(pharmacy)
+                .medicationName("Paracetamol 500mg")
+                .manufacturer("Acme")
+                .batchNumber(batchNumber)
+                .expiryDate(LocalDate.of(2030, 1, 31))
+                .quantity(quantity)
+                .minimumStockLevel(10)
+                .costPrice(new BigDecimal("1.20"))
+                .sellingPrice(new BigDecimal("2.50"))
+                .medicationType(Inventory.MedicationType.OVER_THE_COUNTER)
+                .build();
+    }
+
+    private boolean isActive(Long id) {
+        return jdbcTemplate.queryForObject("SELECT active FROM inventory WHERE id = ?", Boolean.class, id);
+    }
+
+    private List<List<Long>> buyConcurrently(Map<Long, Integer> quantities) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(BUYERS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<List<Long>>> futures = new ArrayList<>();
+            for (int i = 0; i < BUYERS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return repository.decrementStockIfAvailable(quantities);
+                }));
+            }
+            start.countDown();
+            List<List<Long>> results = new ArrayList<>();
+            for (Future<List<Long>> future : futures) {
+                results.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private int quantityOf(Long id) {
+        return jdbcTemplate.queryForObject("SELECT quantity FROM inventory WHERE id = ?", Integer.class, id);
+    }
+}
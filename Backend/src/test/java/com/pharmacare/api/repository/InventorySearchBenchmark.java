@@ -0,0 +1,138 @@
+package com.pharmacare.api.repository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the inventory name search against a pharmacy with a large catalogue: the trigram-ranked query of
+ * {@link InventoryRepository#searchActiveByName} on its GIN index, and the substring match used without
+ * pg_trgm. Needs Docker for the PostgreSQL container. Run as described in the README.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InventorySearchBenchmark {
+
+    private static final String[] NAMES = {"Amoxicillin", "Paracetamol", "Ibuprofen", "Metformin", "Atorvastatin",
+            "Omeprazole", "Amlodipine", "Cetirizine", "Azithromycin", "Losartan", "Pantoprazole", "Levothyroxine"};
+
+    private static final String TRIGRAM_SQL = "SELECT i.id FROM inventory i " +
+            "WHERE i.pharmacy_id = ? AND i.active = true " +
+            "AND (lower(i.medication_name) LIKE ? OR ? <% lower(i.medication_name)) " +
+            "ORDER BY (lower(i.medication_name) LIKE ?) DESC, " +
+            "word_similarity(?, lower(i.medication_name)) DESC, i.medication_name, i.id LIMIT ?";
+
+    private static final String SUBSTRING_SQL = "SELECT i.id, i.active FROM inventory i " +
+            "WHERE i.pharmacy_id = ? AND lower(i.medication_name) LIKE ?";
+
+    private static final int LIMIT = 20;
+
+    @Param({"50000"})
+    int items;
+
+    @Param({"amox", "amoxcilin"})
+    String term;
+
+    private PostgreSQLContainer<?> postgres;
+    private Connection connection;
+
+    @Setup(Level.Trial)
+    public void startDatabase() throws SQLException {
+        postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+        postgres.start();
+        connection = DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE EXTENSION pg_trgm");
+            statement.execute("CREATE TABLE inventory (id bigint PRIMARY KEY, pharmacy_id bigint NOT NULL, " +
+                    "medication_name varchar(255) NOT NULL, active boolean NOT NULL)");
+        }
+        Random random = new Random(3);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO inventory (id, pharmacy_id, medication_name, active) VALUES (?, 1, ?, ?)")) {
+            for (int id = 1; id <= items; id++) {
+                insert.setLong(1, id);
+                insert.setString(2, NAMES[random.nextInt(NAMES.length)] + " " + (random.nextInt(99) + 1) * 10 + "mg "
+                        + Long.toString(random.nextLong() & Long.MAX_VALUE, 36));
+                insert.setBoolean(3, random.nextInt(10) > 0);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE INDEX idx_inventory_name_trgm ON inventory USING gin (lower(medication_name) gin_trgm_ops)");
+            statement.execute("ANALYZE inventory");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopDatabase() throws SQLException {
+        connection.close();
+        postgres.stop();
+    }
+
+    @Benchmark
+    public int trigram() throws SQLException {
+        try (PreparedStatement query = connection.prepareStatement(TRIGRAM_SQL)) {
+            String prefix = term + "%";
+            query.setLong(1, 1);
+            query.setString(2, prefix);
+            query.setString(3, term);
+            query.setString(4, prefix);
+            query.setString(5, term);
+            query.setInt(6, LIMIT);
+            return count(query);
+        }
+    }
+
+    @Benchmark
+    public int substring() throws SQLException {
+        try (PreparedStatement query = connection.prepareStatement(SUBSTRING_SQL)) {
+            query.setLong(1, 1);
+            query.setString(2, "%" + term + "%");
+            int found = 0;
+            try (ResultSet rows = query.executeQuery()) {
+                // The fallback filters inactive items and applies the limit in Java
+                while (rows.next() && found < LIMIT) {
+                    if (rows.getBoolean(2)) {
+                        found++;
+                    }
+                }
+            }
+            return found;
+        }
+    }
+
+    private static int count(PreparedStatement query) throws SQLException {
+        int found = 0;
+        try (ResultSet rows = query.executeQuery()) {
+            while (rows.next()) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
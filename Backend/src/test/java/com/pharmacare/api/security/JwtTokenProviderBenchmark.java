@@ -0,0 +1,84 @@
+package com.pharmacare.api.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request token check of the JWT filter: the former path that built a parser and key and parsed the
+ * token twice, {@link JwtTokenProvider#verify} without the verified-token cache, and a cache hit. Run as
+ * described in the README.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class JwtTokenProviderBenchmark {
+
+    private static final String SECRET = "benchmark-secret-benchmark-secret-benchmark-secret-benchmark-secret";
+
+    private JwtTokenProvider cachingProvider;
+    private JwtTokenProvider uncachedProvider;
+    private String token;
+
+    @Setup
+    public void createProviders() {
+        cachingProvider = provider(10_000);
+        uncachedProvider = provider(0);
+        token = cachingProvider.generateToken("pharmacist@example.com", "family");
+    }
+
+    @Benchmark
+    public boolean parseTwice() {
+        String username = parse(token).getSubject();
+        Claims claims = parse(token);
+        return username.equals(claims.getSubject()) && claims.getExpiration().getTime() > System.currentTimeMillis();
+    }
+
+    @Benchmark
+    public Optional<VerifiedToken> verifyUncached() {
+        return uncachedProvider.verify(token);
+    }
+
+    @Benchmark
+    public Optional<VerifiedToken> verifyCached() {
+        return cachingProvider.verify(token);
+    }
+
+    private static Claims parse(String token) {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    private static JwtTokenProvider provider(long cacheSize) {
+        JwtTokenProvider provider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(provider, "jwtExpiration", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(provider, "refreshExpiration", TimeUnit.DAYS.toMillis(7));
+        ReflectionTestUtils.setField(provider, "verifiedCacheMaxSize", cacheSize);
+        provider.init();
+        return provider;
+    }
+}
@@ -0,0 +1,92 @@
+package com.pharmacare.api.service;
+
+import com.pharmacare.api.model.Pharmacy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Issues bill numbers from many threads with the sequence generator, whose {@code nextval} is simulated
+ * with a fixed round-trip delay, and with the random UUID generator. Run as described in the README.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class BillNumberGeneratorBenchmark {
+
+    @Param({"100"})
+    int blockSize;
+
+    @Param({"500"})
+    long roundTripMicros;
+
+    private final Pharmacy pharmacy = Pharmacy.builder().id(42L).build();
+
+    private SequenceBillNumberGenerator sequenceGenerator;
+    private RandomBillNumberGenerator randomGenerator;
+
+    @Setup
+    public void createGenerators() {
+        sequenceGenerator = new SequenceBillNumberGenerator(new SequenceJdbcTemplate(blockSize, roundTripMicros), blockSize);
+        sequenceGenerator.init();
+        randomGenerator = new RandomBillNumberGenerator();
+    }
+
+    @Benchmark
+    public String sequence() {
+        return sequenceGenerator.nextBillNumber(pharmacy);
+    }
+
+    @Benchmark
+    public String random() {
+        return randomGenerator.nextBillNumber(pharmacy);
+    }
+
+    /**
+     * Answers the generator's statements from memory. {@code nextval} parks for the round trip.
+     */
+    private static final class SequenceJdbcTemplate extends JdbcTemplate {
+
+        private final AtomicLong sequence = new AtomicLong(1);
+        private final long increment;
+        private final long roundTripNanos;
+
+        SequenceJdbcTemplate(long increment, long roundTripMicros) {
+            this.increment = increment;
+            this.roundTripNanos = TimeUnit.MICROSECONDS.toNanos(roundTripMicros);
+        }
+
+        @Override
+        public void execute(String sql) {
+        }
+
+        @Override
+        public <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+            return requiredType.cast(increment);
+        }
+
+        @Override
+        public <T> T queryForObject(String sql, Class<T> requiredType) {
+            LockSupport.parkNanos(roundTripNanos);
+            return requiredType.cast(sequence.getAndAdd(increment));
+        }
+    }
+}
@@ -93,6 +93,24 @@ const Dashboard: React.FC = () => {
 
   useEffect(() => {
     fetchDashboardData();
+
+    // The stream reports when reminders fire or get completed elsewhere, so the dashboard reloads on
+    // events and after reconnects instead of polling
+    let connectedBefore = false;
+    const unsubscribe = reminderService.subscribe((event) => {
+      if (event.type === 'due') {
+        toast(`Time to take ${event.medicationName ?? 'your medication'}${event.dosage ? ` (${event.dosage})` : ''}`, {
+          icon: '💊',
+        });
+      }
+      fetchDashboardData();
+    }, () => {
+      if (connectedBefore) {
+        fetchDashboardData();
+      }
+      connectedBefore = true;
+    });
+    return unsubscribe;
   }, []);
 
   const fetchDashboardData = async () => {
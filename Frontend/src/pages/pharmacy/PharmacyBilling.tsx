@@ -99,7 +99,7 @@ const PharmacyBilling: React.FC = () => {
         }
         setIsSearching(true);
         try {
-            const response = await fetch(`${API_URL}/inventories/${pharmacyId}/items?search=${encodeURIComponent(searchTerm.trim())}`, {
+            const response = await fetch(`${API_URL}/inventories/${pharmacyId}/items/search?q=${encodeURIComponent(searchTerm.trim())}`, {
                 headers: { 'Authorization': `Bearer ${token}` }
             });
             if (!response.ok) throw new Error('Failed to search inventory');
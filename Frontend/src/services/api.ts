@@ -292,6 +292,17 @@ export interface Reminder {
   medication?: Medication;
 }
 
+export interface ReminderEvent {
+  type: 'due' | 'completed';
+  userId: number;
+  reminderId: number;
+  medicationName?: string;
+  dosage?: string;
+  reminderTime: string;
+  completed: boolean;
+  completedAt?: string;
+}
+
 export const reminderService = {
   getAll: async () => {
     const response = await api.get('/reminders');
@@ -322,11 +333,106 @@ export const reminderService = {
     const response = await api.post(`/reminders/${id}/complete`, {});
     return response.data;
   },
+
+  // Reuse the same idempotencyKey when retrying a batch so the server can return the stored result
+  markCompletedBatch: async (
+    reminders: { id: number; completedAt?: string }[],
+    idempotencyKey: string = crypto.randomUUID()
+  ): Promise<{ completed: number[]; alreadyCompleted: number[]; notFound: number[] }> => {
+    const response = await api.post('/reminders/complete:batch', { reminders }, {
+      headers: { 'Idempotency-Key': idempotencyKey },
+    });
+    return response.data;
+  },
   
   delete: async (id: number) => {
     const response = await api.delete(`/reminders/${id}`);
     return response.data;
   },
+
+  /**
+   * Listens to the reminder event stream and reconnects with backoff until the returned function is called.
+   * EventSource cannot send the Authorization header, so the stream is read with fetch. onOpen runs on every
+   * (re)connect; events sent while disconnected are not replayed, so callers should reload their data there.
+   */
+  subscribe: (onEvent: (event: ReminderEvent) => void, onOpen?: () => void) => {
+    const controller = new AbortController();
+    let delay = 1000;
+
+    const connect = async () => {
+      const token = localStorage.getItem('token');
+      if (!token) {
+        return false;
+      }
+      const response = await fetch(`${API_URL}/reminders/stream`, {
+        headers: { Accept: 'text/event-stream', Authorization: `Bearer ${token}` },
+        signal: controller.signal,
+      });
+      if (response.status === 401 || response.status === 403) {
+        return false;
+      }
+      if (!response.ok || !response.body) {
+        const retryAfter = Number(response.headers.get('Retry-After'));
+        throw new Error(retryAfter > 0 ? `retry:${retryAfter * 1000}` : `HTTP ${response.status}`);
+      }
+      delay = 1000;
+      onOpen?.();
+
+      const reader = response.body.getReader();
+      const decoder = new TextDecoder();
+      let buffer = '';
+      for (;;) {
+        const { value, done } = await reader.read();
+        if (done) {
+          break;
+        }
+        buffer += decoder.decode(value, { stream: true });
+        let boundary;
+        while ((boundary = buffer.indexOf('\n\n')) >= 0) {
+          const block = buffer.slice(0, boundary);
+          buffer = buffer.slice(boundary + 2);
+          let name = 'message';
+          let data = '';
+          for (const line of block.split('\n')) {
+            if (line.startsWith('event:')) {
+              name = line.slice(6).trim();
+            } else if (line.startsWith('data:')) {
+              data += line.slice(5).trim();
+            } else if (line.startsWith('retry:')) {
+              delay = Number(line.slice(6).trim()) || delay;
+            }
+          }
+          if ((name === 'due' || name === 'completed') && data) {
+            onEvent(JSON.parse(data) as ReminderEvent);
+          }
+        }
+      }
+      return true;
+    };
+
+    const run = async () => {
+      while (!controller.signal.aborted) {
+        try {
+          if (!(await connect())) {
+            return;
+          }
+        } catch (error) {
+          if (controller.signal.aborted) {
+            return;
+          }
+          const message = error instanceof Error ? error.message : '';
+          if (message.startsWith('retry:')) {
+            delay = Number(message.slice(6));
+          }
+        }
+        await new Promise((resolve) => setTimeout(resolve, delay + Math.random() * delay));
+        delay = Math.min(delay * 2, 60000);
+      }
+    };
+
+    run();
+    return () => controller.abort();
+  },
 };
 
 // Donation service